@@ -0,0 +1,6 @@
+package dev.marcusxavier.lox;
+
+// An expression compiled to JVM bytecode by JitCompiler
+interface CompiledExpr {
+    Object evaluate();
+}
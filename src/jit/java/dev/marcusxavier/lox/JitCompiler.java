@@ -0,0 +1,299 @@
+package dev.marcusxavier.lox;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+// Compiles an expression to a hidden class implementing CompiledExpr, so HotSpot can turn it into machine code.
+//
+// Every value's type is known while compiling: literals have one, arithmetic always gives a number, comparisons
+// and ! a boolean, and the only other values are nil and strings. So numbers and booleans stay primitive on the
+// JVM stack, and an operation on operands of the wrong type compiles straight to the RuntimeError the Interpreter
+// would raise (after both operands are evaluated, since they can raise an error of their own first).
+//
+// The class is defined without the STRONG option, so it is unloaded once nothing refers to its instance.
+class JitCompiler implements Expr.Visitor<JitCompiler.Kind> {
+    // What the code for a subexpression leaves on the JVM stack
+    enum Kind {
+        NUMBER,  // a double
+        BOOLEAN, // an int, 0 or 1
+        VALUE,   // a reference, nil or a String
+    }
+
+    // HotSpot does not compile methods above 8000 bytes of bytecode, it is not worth generating those
+    static final int MAX_NODES = 1500;
+
+    private static final String CLASS_NAME = "dev/marcusxavier/lox/CompiledExpr$Impl";
+    // Owner of the runtime helpers the compiled code calls, concat and isEqual
+    private static final String RUNTIME = Type.getInternalName(Interpreter.class);
+    private static final String TOKEN = Type.getDescriptor(Token.class);
+    private static final String ERROR = Type.getInternalName(RuntimeError.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private MethodVisitor method;
+    // Operator tokens, for errors. The compiled object gets them as a constructor argument.
+    private List<Token> tokens;
+    private int nodes;
+
+    // null when the expression is too big to be worth compiling
+    CompiledExpr compile(Expr expr) {
+        if (count(expr) > MAX_NODES) return null;
+
+        tokens = new ArrayList<>();
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(V21, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, CLASS_NAME, null, "java/lang/Object",
+                new String[]{Type.getInternalName(CompiledExpr.class)});
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "tokens", "[" + TOKEN, null, null).visitEnd();
+
+        MethodVisitor init = writer.visitMethod(0, "<init>", "([" + TOKEN + ")V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitFieldInsn(PUTFIELD, CLASS_NAME, "tokens", "[" + TOKEN);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, "evaluate", "()Ljava/lang/Object;", null, null);
+        method.visitCode();
+        box(expr.accept(this));
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        try {
+            // Not STRONG on purpose. Callers keep the instance as long as they want the code: JitTier holds it
+            // for as long as its tree is alive. A STRONG class would stay loaded as long as Lox's class loader,
+            // one class per tree ever compiled.
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(writer.toByteArray(), true);
+            return (CompiledExpr) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, Token[].class))
+                    .invoke(tokens.toArray(new Token[0]));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not define the compiled expression", e);
+        }
+    }
+
+    @Override
+    public Kind visitBinaryExpr(Expr.Binary expr) {
+        Kind left = expr.left.accept(this);
+        Kind right = expr.right.accept(this);
+        boolean numbers = left == Kind.NUMBER && right == Kind.NUMBER;
+
+        switch (expr.operator.type) {
+            case PLUS -> {
+                if (numbers) {
+                    method.visitInsn(DADD);
+                    return Kind.NUMBER;
+                }
+                if (left == Kind.VALUE && right == Kind.VALUE) {
+                    // Strings, or nil which concat rejects
+                    token(expr.operator);
+                    method.visitMethodInsn(INVOKESTATIC, RUNTIME, "concat",
+                            "(Ljava/lang/Object;Ljava/lang/Object;" + TOKEN + ")Ljava/lang/Object;", false);
+                    return Kind.VALUE;
+                }
+                return fail(expr.operator, "Operands must be two numbers or two strings.", left, right, Kind.NUMBER);
+            }
+            case MINUS, STAR, SLASH -> {
+                if (!numbers) return fail(expr.operator, "Operands must be numbers.", left, right, Kind.NUMBER);
+
+                method.visitInsn(switch (expr.operator.type) {
+                    case MINUS -> DSUB;
+                    case STAR -> DMUL;
+                    default -> DDIV;
+                });
+                return Kind.NUMBER;
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                if (!numbers) return fail(expr.operator, "Operands must be numbers.", left, right, Kind.BOOLEAN);
+
+                // The DCMPL/DCMPG variant is picked so that NaN makes the comparison false
+                switch (expr.operator.type) {
+                    case GREATER -> condition(DCMPL, IFGT);
+                    case GREATER_EQUAL -> condition(DCMPL, IFGE);
+                    case LESS -> condition(DCMPG, IFLT);
+                    default -> condition(DCMPG, IFLE);
+                }
+                return Kind.BOOLEAN;
+            }
+            case EQUAL_EQUAL, BANG_EQUAL -> {
+                boolean equal = expr.operator.type == TokenType.EQUAL_EQUAL;
+                if (numbers) {
+                    // Double.equals semantics: NaN equals itself, 0.0 and -0.0 differ
+                    method.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+                    branch(equal ? IFEQ : IFNE);
+                } else if (left == Kind.BOOLEAN && right == Kind.BOOLEAN) {
+                    branch(equal ? IF_ICMPEQ : IF_ICMPNE);
+                } else if (left == Kind.VALUE && right == Kind.VALUE) {
+                    method.visitMethodInsn(INVOKESTATIC, RUNTIME, "isEqual",
+                            "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                    if (!equal) {
+                        method.visitInsn(ICONST_1);
+                        method.visitInsn(IXOR);
+                    }
+                } else {
+                    // Values of different types are never equal
+                    pop(right);
+                    pop(left);
+                    method.visitInsn(equal ? ICONST_0 : ICONST_1);
+                }
+                return Kind.BOOLEAN;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown binary operator " + expr.operator.type);
+    }
+
+    @Override
+    public Kind visitErrorExpr(Expr.Error expr) {
+        throw new IllegalArgumentException("Cannot compile code with syntax errors");
+    }
+
+    @Override
+    public Kind visitGroupingExpr(Expr.Grouping expr) {
+        return expr.expression.accept(this);
+    }
+
+    @Override
+    public Kind visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+
+        if (value == null) {
+            method.visitInsn(ACONST_NULL);
+            return Kind.VALUE;
+        }
+
+        if (value instanceof Boolean bool) {
+            method.visitInsn(bool ? ICONST_1 : ICONST_0);
+            return Kind.BOOLEAN;
+        }
+
+        method.visitLdcInsn(value);
+        return value instanceof Double ? Kind.NUMBER : Kind.VALUE;
+    }
+
+    @Override
+    public Kind visitUnaryExpr(Expr.Unary expr) {
+        Kind right = expr.right.accept(this);
+
+        switch (expr.operator.type) {
+            case MINUS -> {
+                if (right != Kind.NUMBER) {
+                    pop(right);
+                    return error(expr.operator, "Operand must be a number.", Kind.NUMBER);
+                }
+                method.visitInsn(DNEG);
+                return Kind.NUMBER;
+            }
+            case BANG -> {
+                switch (right) {
+                    // Numbers are always truthy
+                    case NUMBER -> {
+                        method.visitInsn(POP2);
+                        method.visitInsn(ICONST_0);
+                    }
+                    case BOOLEAN -> {
+                        method.visitInsn(ICONST_1);
+                        method.visitInsn(IXOR);
+                    }
+                    // nil is the only falsey one
+                    case VALUE -> branch(IFNULL);
+                }
+                return Kind.BOOLEAN;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown unary operator " + expr.operator.type);
+    }
+
+    // Compares the two doubles on the stack and leaves 1 if compare and then jump go to the true branch, else 0
+    private void condition(int compare, int jump) {
+        method.visitInsn(compare);
+        branch(jump);
+    }
+
+    // Leaves 1 when the jump is taken, 0 otherwise
+    private void branch(int jump) {
+        Label isTrue = new Label();
+        Label end = new Label();
+        method.visitJumpInsn(jump, isTrue);
+        method.visitInsn(ICONST_0);
+        method.visitJumpInsn(GOTO, end);
+        method.visitLabel(isTrue);
+        method.visitInsn(ICONST_1);
+        method.visitLabel(end);
+    }
+
+    // Drops both operands and raises the error. The code after it is never reached, kind is what the node would
+    // have left on the stack otherwise.
+    private Kind fail(Token operator, String message, Kind left, Kind right, Kind kind) {
+        pop(right);
+        pop(left);
+        return error(operator, message, kind);
+    }
+
+    private Kind error(Token operator, String message, Kind kind) {
+        method.visitTypeInsn(NEW, ERROR);
+        method.visitInsn(DUP);
+        token(operator);
+        method.visitLdcInsn(message);
+        method.visitMethodInsn(INVOKESPECIAL, ERROR, "<init>", "(" + TOKEN + "Ljava/lang/String;)V", false);
+        method.visitInsn(ATHROW);
+        return kind;
+    }
+
+    // Pushes the token from the tokens field
+    private void token(Token token) {
+        method.visitVarInsn(ALOAD, 0);
+        method.visitFieldInsn(GETFIELD, CLASS_NAME, "tokens", "[" + TOKEN);
+        method.visitLdcInsn(tokens.size());
+        method.visitInsn(AALOAD);
+        tokens.add(token);
+    }
+
+    private void pop(Kind kind) {
+        method.visitInsn(kind == Kind.NUMBER ? POP2 : POP);
+    }
+
+    private void box(Kind kind) {
+        switch (kind) {
+            case NUMBER -> method.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf",
+                    "(D)Ljava/lang/Double;", false);
+            case BOOLEAN -> method.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf",
+                    "(Z)Ljava/lang/Boolean;", false);
+            case VALUE -> { }
+        }
+    }
+
+    private int count(Expr expr) {
+        nodes = 0;
+        countNodes(expr);
+        return nodes;
+    }
+
+    private void countNodes(Expr expr) {
+        // Stop early, the tree can be huge
+        if (++nodes > MAX_NODES) return;
+
+        if (expr instanceof Expr.Binary binary) {
+            countNodes(binary.left);
+            countNodes(binary.right);
+        } else if (expr instanceof Expr.Grouping grouping) {
+            countNodes(grouping.expression);
+        } else if (expr instanceof Expr.Unary unary) {
+            countNodes(unary.right);
+        }
+    }
+}
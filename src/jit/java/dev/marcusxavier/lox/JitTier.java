@@ -0,0 +1,60 @@
+package dev.marcusxavier.lox;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Evaluates expressions with the tree walker until they have been evaluated threshold times, then compiles them
+// with JitCompiler and runs the compiled code from then on.
+//
+// Lox does not run it: a script or REPL line is evaluated once, and a REPL line seen before gets its result from
+// the ResultCache, so no tree would ever get hot. It is for embedders that evaluate the same tree many times, and
+// only built with -P jit, which is also what brings in ASM.
+//
+// Counters are kept in a WeakHashMap keyed by the tree (Expr has identity equality), and a compiled expression
+// does not refer back to its tree. So once a tree is dropped, its entry goes away, the compiled object becomes
+// unreachable and its hidden class can be unloaded.
+class JitTier {
+    static final int DEFAULT_THRESHOLD = 1000;
+
+    private static final class Profile {
+        int evaluations = 0;
+        CompiledExpr compiled = null;
+        // Too big for the compiler, do not try again
+        boolean rejected = false;
+    }
+
+    private final Interpreter interpreter = new Interpreter();
+    private final JitCompiler compiler = new JitCompiler();
+    private final Map<Expr, Profile> profiles = new WeakHashMap<>();
+    private final int threshold;
+    private int compiledCount = 0;
+
+    JitTier() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    JitTier(int threshold) {
+        this.threshold = threshold;
+    }
+
+    Object evaluate(Expr expression) {
+        Profile profile = profiles.computeIfAbsent(expression, key -> new Profile());
+        if (profile.compiled != null) return profile.compiled.evaluate();
+
+        if (!profile.rejected && ++profile.evaluations >= threshold) {
+            profile.compiled = compiler.compile(expression);
+            profile.rejected = profile.compiled == null;
+            if (profile.compiled != null) {
+                compiledCount++;
+                return profile.compiled.evaluate();
+            }
+        }
+
+        return interpreter.evaluate(expression);
+    }
+
+    // How many trees got compiled so far
+    int compiledCount() {
+        return compiledCount;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// JitCompiler and JitTier against the Interpreter, like the tiers in ExecutionTiersTest. Built with -P jit only.
+class JitTierTest {
+    @Test
+    void jitCompiledCodeAgreesWithTheInterpreter() {
+        JitCompiler compiler = new JitCompiler();
+        ExecutionTiersTest.check(2, expression -> compiler.compile(expression).evaluate());
+    }
+
+    // Interpreted until the threshold, compiled from then on, the result must not change when it switches
+    @Test
+    void jitTierAgreesBeforeAndAfterCompiling() {
+        JitTier jit = new JitTier(2);
+        ExecutionTiersTest.check(3, expression -> {
+            String first = ReferenceInterpreter.outcome(() -> jit.evaluate(expression));
+            for (int run = 0; run < 2; run++) {
+                assertEquals(first, ReferenceInterpreter.outcome(() -> jit.evaluate(expression)));
+            }
+            return jit.evaluate(expression);
+        });
+        assertTrue(jit.compiledCount() > 0);
+    }
+
+    @Test
+    void treesTooBigToCompileStayInterpreted() {
+        String source = "1" + " + 1".repeat(JitCompiler.MAX_NODES);
+        Expr expression = new Parser(new Scanner(source).scanTokens()).parse();
+        assertNull(new JitCompiler().compile(expression));
+
+        JitTier jit = new JitTier(1);
+        for (int run = 0; run < 3; run++) assertEquals(JitCompiler.MAX_NODES + 1.0, jit.evaluate(expression));
+        assertEquals(0, jit.compiledCount());
+    }
+
+    // Far over MAX_NODES, so it runs in the Interpreter's chain loop
+    @Test
+    void longChainsStayInterpreted() {
+        int terms = 200_000;
+        Expr expression = Trees.parse("1" + " + 1".repeat(terms - 1), Diagnostics.collecting());
+        JitTier jit = new JitTier(1);
+        assertEquals("200000", ReferenceInterpreter.outcome(() -> jit.evaluate(expression)));
+        assertEquals(0, jit.compiledCount());
+    }
+}
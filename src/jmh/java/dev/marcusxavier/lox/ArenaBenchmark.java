@@ -0,0 +1,93 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Visiting every node of the same tree as Expr objects and as an ExprArena. Each benchmark adds up the number
+// literals, so all of them have to reach every leaf.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ArenaBenchmark {
+    // 2^levels leaves, about 2^(levels + 1) nodes plus groups
+    @Param({"20"})
+    public int levels;
+
+    private Expr expression;
+    private ExprArena arena;
+
+    @Setup
+    public void setUp() {
+        expression = new Parser(new Scanner(Corpora.balancedExpression(levels, 42)).scanTokens()).parse();
+        if (expression instanceof Expr.Error) throw new IllegalStateException("corpus did not parse");
+        arena = ExprArena.of(expression);
+    }
+
+    @Benchmark
+    public double visitor() {
+        return expression.accept(new NumberSum());
+    }
+
+    // The same visitor on the arena, through nodes built as it gets to them
+    @Benchmark
+    public double arenaVisitor() {
+        return arena.accept(new NumberSum());
+    }
+
+    // The same recursive walk, following child indexes
+    @Benchmark
+    public double arenaWalk() {
+        return walk(arena.root());
+    }
+
+    // Children come before parents, so one pass over the array sees every node
+    @Benchmark
+    public double arenaScan() {
+        double sum = 0;
+        for (int node = 0; node < arena.size(); node++) {
+            if (arena.kind(node) == ExprArena.NUMBER) sum += arena.number(node);
+        }
+        return sum;
+    }
+
+    private double walk(int node) {
+        return switch (arena.kind(node)) {
+            case ExprArena.BINARY -> walk(arena.left(node)) + walk(arena.right(node));
+            case ExprArena.GROUPING, ExprArena.UNARY -> walk(arena.left(node));
+            case ExprArena.NUMBER -> arena.number(node);
+            default -> 0;
+        };
+    }
+
+    private static final class NumberSum implements Expr.Visitor<Double> {
+        @Override
+        public Double visitBinaryExpr(Expr.Binary expr) {
+            return expr.left.accept(this) + expr.right.accept(this);
+        }
+
+        @Override
+        public Double visitErrorExpr(Expr.Error expr) {
+            return 0.0;
+        }
+
+        @Override
+        public Double visitGroupingExpr(Expr.Grouping expr) {
+            return expr.expression.accept(this);
+        }
+
+        @Override
+        public Double visitLiteralExpr(Expr.Literal expr) {
+            return expr.value instanceof Double number ? number : 0.0;
+        }
+
+        @Override
+        public Double visitUnaryExpr(Expr.Unary expr) {
+            return expr.right.accept(this);
+        }
+    }
+}
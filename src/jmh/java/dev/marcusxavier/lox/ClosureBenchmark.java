@@ -0,0 +1,45 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Evaluating the same numeric expression with the tree walking Interpreter and as the lambdas ClosureCompiler
+// built from it once. The expression is not run through the Optimizer, so there is something left to evaluate.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClosureBenchmark {
+    @Param({"200"})
+    public int terms;
+
+    private final Interpreter interpreter = new Interpreter();
+    private Expr expression;
+    private Supplier<Object> compiled;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("1");
+        for (int i = 0; i < terms; i++) {
+            builder.append(i % 2 == 0 ? " + " : " * ").append("(").append(i).append(" - 0.5)");
+        }
+        expression = new Parser(new Scanner(builder.toString()).scanTokens()).parse();
+        if (expression instanceof Expr.Error) throw new IllegalStateException("corpus did not parse");
+        compiled = new ClosureCompiler().compile(expression);
+    }
+
+    @Benchmark
+    public Object tree() {
+        return interpreter.evaluate(expression);
+    }
+
+    @Benchmark
+    public Object closures() {
+        return compiled.get();
+    }
+}
@@ -0,0 +1,137 @@
+package dev.marcusxavier.lox;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+// Generated benchmark inputs. Every generator takes a seed, so a given size and seed always give the same text.
+final class Corpora {
+    private static final String[] KEYWORDS = {"and", "class", "else", "false", "for", "fun", "if", "nil", "or",
+            "print", "return", "super", "this", "true", "var", "while"};
+    private static final String[] OPERATORS = {" + ", " - ", " * ", " / ", " == ", " != ", " < ", " <= ", " > ",
+            " >= "};
+
+    private Corpora() {
+    }
+
+    // Scanner inputs, about size chars each
+    enum Kind {
+        IDENTIFIERS,
+        NUMBERS,
+        COMMENTS,
+        STRINGS,
+    }
+
+    static String scannerInput(Kind kind, int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(size + 128);
+
+        while (builder.length() < size) {
+            switch (kind) {
+                case IDENTIFIERS -> {
+                    // Keywords mixed with identifiers that share their prefixes
+                    String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+                    builder.append(random.nextBoolean() ? keyword : keyword + "_" + random.nextInt(1000));
+                    builder.append(random.nextInt(8) == 0 ? "\n" : " ");
+                }
+                case NUMBERS -> {
+                    builder.append(random.nextInt(100_000));
+                    if (random.nextBoolean()) builder.append('.').append(random.nextInt(1000));
+                    builder.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+                    if (random.nextInt(8) == 0) builder.append('\n');
+                }
+                case COMMENTS -> {
+                    if (random.nextBoolean()) {
+                        builder.append("// ").append(words(random, 12)).append('\n');
+                    } else {
+                        builder.append("/* ").append(words(random, 6)).append("\n   ").append(words(random, 6))
+                                .append(" */\n");
+                    }
+                    builder.append("1 + 2\n");
+                }
+                case STRINGS -> {
+                    builder.append('"').append(words(random, 1 + random.nextInt(10))).append('"');
+                    builder.append(random.nextInt(8) == 0 ? " +\n" : " + ");
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    // Parser inputs
+
+    // Right nested groups, (0 + (1 + (2 + ...))), depth levels deep
+    static String deepExpression(int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) builder.append('(').append(i).append(" + ");
+        builder.append(depth);
+        builder.append(")".repeat(depth));
+        return builder.toString();
+    }
+
+    // A flat chain of terms operators apart, parsed as one long left leaning tree
+    static String wideExpression(int terms, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) builder.append(OPERATORS[random.nextInt(4)]);
+            builder.append(random.nextInt(1000));
+        }
+        return builder.toString();
+    }
+
+    // A complete binary tree of groups, levels deep, for the printers which recurse on both sides
+    static String balancedExpression(int levels, long seed) {
+        StringBuilder builder = new StringBuilder();
+        balanced(builder, levels, new Random(seed));
+        return builder.toString();
+    }
+
+    private static void balanced(StringBuilder builder, int levels, Random random) {
+        if (levels == 0) {
+            switch (random.nextInt(4)) {
+                case 0 -> builder.append('"').append(random.nextInt(100)).append('"');
+                case 1 -> builder.append("-").append(random.nextInt(100));
+                default -> builder.append(random.nextInt(100)).append('.').append(random.nextInt(10));
+            }
+            return;
+        }
+
+        builder.append('(');
+        balanced(builder, levels - 1, random);
+        builder.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+        balanced(builder, levels - 1, random);
+        builder.append(')');
+    }
+
+    // Nodes in a tree, without recursing since wide trees are very deep on the left
+    static int countNodes(Expr expr) {
+        ArrayDeque<Expr> pending = new ArrayDeque<>();
+        pending.push(expr);
+
+        int count = 0;
+        while (!pending.isEmpty()) {
+            Expr node = pending.pop();
+            count++;
+            if (node instanceof Expr.Binary binary) {
+                pending.push(binary.left);
+                pending.push(binary.right);
+            } else if (node instanceof Expr.Grouping grouping) {
+                pending.push(grouping.expression);
+            } else if (node instanceof Expr.Unary unary) {
+                pending.push(unary.right);
+            }
+        }
+        return count;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(' ');
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Visitor double dispatch over Expr against a pattern matching switch over the same tree as SealedExpr records.
+// The print benchmarks run the two printers (same output), the sum ones a bare recursive walk that adds up the
+// number literals, where dispatch is most of the work.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+    // 2^levels leaves
+    @Param({"12", "16"})
+    public int levels;
+
+    private Expr expression;
+    private SealedExpr sealed;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        expression = new Parser(new Scanner(Corpora.balancedExpression(levels, 42)).scanTokens()).parse();
+        if (expression instanceof Expr.Error) throw new IllegalStateException("corpus did not parse");
+        sealed = expression.accept(new ToSealed());
+    }
+
+    @Benchmark
+    public int visitorPrint() throws IOException {
+        out.setLength(0);
+        new AstPrinter().print(expression, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public int switchPrint() throws IOException {
+        out.setLength(0);
+        new SealedAstPrinter().print(sealed, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public double visitorSum() {
+        return expression.accept(new NumberSum());
+    }
+
+    @Benchmark
+    public double switchSum() {
+        return sum(sealed);
+    }
+
+    private static double sum(SealedExpr expr) {
+        return switch (expr) {
+            case SealedExpr.Binary binary -> sum(binary.left()) + sum(binary.right());
+            case SealedExpr.Error error -> 0;
+            case SealedExpr.Grouping grouping -> sum(grouping.expression());
+            case SealedExpr.Literal literal -> literal.value() instanceof Double number ? number : 0;
+            case SealedExpr.Unary unary -> sum(unary.right());
+        };
+    }
+
+    private static final class NumberSum implements Expr.Visitor<Double> {
+        @Override
+        public Double visitBinaryExpr(Expr.Binary expr) {
+            return expr.left.accept(this) + expr.right.accept(this);
+        }
+
+        @Override
+        public Double visitErrorExpr(Expr.Error expr) {
+            return 0.0;
+        }
+
+        @Override
+        public Double visitGroupingExpr(Expr.Grouping expr) {
+            return expr.expression.accept(this);
+        }
+
+        @Override
+        public Double visitLiteralExpr(Expr.Literal expr) {
+            return expr.value instanceof Double number ? number : 0.0;
+        }
+
+        @Override
+        public Double visitUnaryExpr(Expr.Unary expr) {
+            return expr.right.accept(this);
+        }
+    }
+
+    // Copies a tree into records, the benchmark trees are balanced so recursing is fine
+    private static final class ToSealed implements Expr.Visitor<SealedExpr> {
+        @Override
+        public SealedExpr visitBinaryExpr(Expr.Binary expr) {
+            return new SealedExpr.Binary(expr.left.accept(this), expr.operator, expr.right.accept(this));
+        }
+
+        @Override
+        public SealedExpr visitErrorExpr(Expr.Error expr) {
+            return new SealedExpr.Error(expr.token, expr.parts.stream().map(part -> part.accept(this)).toList());
+        }
+
+        @Override
+        public SealedExpr visitGroupingExpr(Expr.Grouping expr) {
+            return new SealedExpr.Grouping(expr.expression.accept(this));
+        }
+
+        @Override
+        public SealedExpr visitLiteralExpr(Expr.Literal expr) {
+            return new SealedExpr.Literal(expr.value);
+        }
+
+        @Override
+        public SealedExpr visitUnaryExpr(Expr.Unary expr) {
+            return new SealedExpr.Unary(expr.operator, expr.right.accept(this));
+        }
+    }
+}
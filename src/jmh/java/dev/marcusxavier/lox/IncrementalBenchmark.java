@@ -0,0 +1,66 @@
+package dev.marcusxavier.lox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// A full parse of a source with many groups against IncrementalFrontend.edit of a small change, which only scans
+// and parses again what the edit touched. The edits undo each other every other invocation, so the frontend keeps
+// editing the same document.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+    @Param({"20000"})
+    public int groups;
+
+    private final IncrementalFrontend frontend = new IncrementalFrontend();
+    private String source;
+    private int edited;
+    private String number;
+    private boolean changed;
+    private boolean lineAdded;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < groups; i++) {
+            if (i > 0) builder.append(" +\n");
+            builder.append("(").append(i).append(" * (2 - ").append(i % 7).append("))");
+        }
+        source = builder.toString();
+        if (frontend.parse(source).expression instanceof Expr.Error) {
+            throw new IllegalStateException("source did not parse");
+        }
+
+        // The number of the group in the middle
+        number = String.valueOf(groups / 2);
+        edited = source.indexOf("(" + number + " ") + 1;
+        if (edit().expression instanceof Expr.Error) throw new IllegalStateException("edit did not parse");
+        edit();
+    }
+
+    @Benchmark
+    public IncrementalFrontend.Snapshot fullParse() {
+        return new IncrementalFrontend().parse(source);
+    }
+
+    // The number in the middle becomes 42 and back
+    @Benchmark
+    public IncrementalFrontend.Snapshot edit() {
+        changed = !changed;
+        return changed
+                ? frontend.edit(edited, edited + number.length(), "42")
+                : frontend.edit(edited, edited + 2, number);
+    }
+
+    // Every group moves down a line and back, they are all reused anyway
+    @Benchmark
+    public IncrementalFrontend.Snapshot lineAtTheTop() {
+        lineAdded = !lineAdded;
+        return lineAdded ? frontend.edit(0, 0, "\n") : frontend.edit(0, 1, "");
+    }
+}
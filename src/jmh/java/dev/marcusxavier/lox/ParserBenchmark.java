@@ -0,0 +1,51 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Parser.parse on already scanned tokens, so only the parser is measured. The nodes counter gives nodes per
+// second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    // deep: 500 nested groups, wide: a flat chain of 100 000 terms
+    @Param({"deep", "wide"})
+    public String shape;
+
+    private TokenBuffer tokens;
+    private int nodes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        String source = shape.equals("deep") ? Corpora.deepExpression(500) : Corpora.wideExpression(100_000, 42);
+        tokens = new Scanner(source).scanTokens();
+        Expr expression = new Parser(tokens).parse();
+        if (expression instanceof Expr.Error) throw new IllegalStateException(shape + " did not parse");
+        nodes = Corpora.countNodes(expression);
+    }
+
+    @Benchmark
+    public Object parse(Counters counters) {
+        Expr expression = new Parser(tokens).parse();
+        counters.nodes += nodes;
+        return expression;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Both printers on the same balanced tree
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrinterBenchmark {
+    // 2^levels leaves
+    @Param({"12"})
+    public int levels;
+
+    private Expr expression;
+
+    @Setup
+    public void setUp() {
+        expression = new Parser(new Scanner(Corpora.balancedExpression(levels, 42)).scanTokens()).parse();
+        if (expression instanceof Expr.Error) throw new IllegalStateException("corpus did not parse");
+    }
+
+    @Benchmark
+    public String astPrinter() {
+        return new AstPrinter().print(expression);
+    }
+
+    @Benchmark
+    public String polishAstPrinter() {
+        return new PolishAstPrinter().print(expression);
+    }
+}
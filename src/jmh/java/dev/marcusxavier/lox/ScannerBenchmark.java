@@ -0,0 +1,49 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import dev.marcusxavier.lox.scanner.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Scanner.scanTokens on each corpus kind. The tokens counter gives tokens per second next to the calls per
+// second, and -prof gc (on by default in BenchmarkRunner) the allocation rate.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    @Param({"IDENTIFIERS", "NUMBERS", "COMMENTS", "STRINGS"})
+    public String corpus;
+
+    @Param({"1000000"})
+    public int size;
+
+    private SourceText source;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        source = SourceText.of(Corpora.scannerInput(Corpora.Kind.valueOf(corpus), size, 42));
+    }
+
+    @Benchmark
+    public TokenBuffer scanTokens(Counters counters) {
+        TokenBuffer tokens = new Scanner(source).scanTokens();
+        counters.tokens += tokens.size();
+        return tokens;
+    }
+}
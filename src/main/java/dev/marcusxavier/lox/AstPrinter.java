@@ -1,44 +1,83 @@
 package dev.marcusxavier.lox;
 
-class AstPrinter implements Expr.Visitor<String> {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+// Prints an expression in Lisp style, straight to an Appendable.
+//
+// The visitor does not recurse: visiting a node pushes its text and its children, in the order they are printed,
+// onto an explicit stack, and print() pops and writes them one by one. So printing takes time linear in the size
+// of the output and no Java stack however deep the tree is.
+class AstPrinter implements Expr.Visitor<Void> {
+    // Expr nodes still to visit and String pieces still to write, the next one on top
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
 
     String print(Expr expr) {
-        return expr.accept(this);
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expr, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    void print(Expr expr, Appendable out) throws IOException {
+        pending.clear();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Expr node) {
+                node.accept(this);
+            } else {
+                out.append((String) next);
+            }
+        }
     }
 
     @Override
-    public String visitBinaryExpr(Expr.Binary expr) {
+    public Void visitBinaryExpr(Expr.Binary expr) {
         return parenthesize(expr.operator.lexeme, expr.left, expr.right);
     }
 
     @Override
-    public String visitGroupingExpr(Expr.Grouping expr) {
+    public Void visitErrorExpr(Expr.Error expr) {
+        if (!expr.parts.isEmpty()) return parenthesize("<error>", expr.parts.toArray(new Expr[0]));
+
+        pending.push("<error>");
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
         return parenthesize(null, expr.expression);
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
-        if (expr.value == null) return "nil";
-        return expr.value.toString();
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        pending.push(expr.value == null ? "nil" : expr.value.toString());
+        return null;
     }
 
     @Override
-    public String visitUnaryExpr(Expr.Unary expr) {
+    public Void visitUnaryExpr(Expr.Unary expr) {
         return parenthesize(expr.operator.lexeme, expr.right);
     }
 
-    private String parenthesize(String name, Expr... exprs) {
-        StringBuilder builder = new StringBuilder();
-
+    // Pushed last to first, so they come off the stack in print order
+    private Void parenthesize(String name, Expr... exprs) {
         // Trick to deal with grouping expressions and create valid lisp code
-        if (name != null) builder.append("(").append(name);
-        for (Expr expr : exprs) {
-            builder.append(" ");
-            builder.append(expr.accept(this));
+        if (name != null) pending.push(")");
+        for (int i = exprs.length - 1; i >= 0; i--) {
+            pending.push(exprs[i]);
+            pending.push(" ");
         }
-        if (name != null) builder.append(")");
+        if (name != null) pending.push("(" + name);
 
-        return builder.toString();
+        return null;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,126 @@
+package dev.marcusxavier.lox;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Flattens an expression into a Chunk in postfix order, the same order PolishAstPrinter prints it in:
+// both operands first, then the operator.
+class BytecodeCompiler implements Expr.Visitor<Void> {
+    private Chunk chunk;
+    // Pool index of every constant already added, so repeated literals share a slot
+    private final Map<Object, Integer> numberSlots = new HashMap<>();
+    private final Map<Object, Integer> constantSlots = new HashMap<>();
+    private int depth = 0;
+
+    Chunk compile(Expr expr) {
+        chunk = new Chunk();
+        numberSlots.clear();
+        constantSlots.clear();
+        depth = 0;
+
+        expr.accept(this);
+        chunk.write(Chunk.OP_RETURN, null);
+        return chunk;
+    }
+
+    // A chain of binary operators like 1 + 2 + 3 + ... is walked down its left side in a loop, one level of
+    // recursion per operator would run out of stack on a long chain. Its code is the leftmost operand, then each
+    // right operand followed by its operator, from the bottom up.
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        ArrayDeque<Expr.Binary> chain = new ArrayDeque<>();
+        Expr left = expr;
+        while (left instanceof Expr.Binary binary) {
+            chain.push(binary);
+            left = binary.left;
+        }
+
+        left.accept(this);
+        while (!chain.isEmpty()) operation(chain.pop());
+        return null;
+    }
+
+    // Code for expr whose left operand is already on the stack
+    private void operation(Expr.Binary expr) {
+        expr.right.accept(this);
+
+        byte op = switch (expr.operator.type) {
+            case PLUS -> Chunk.OP_ADD;
+            case MINUS -> Chunk.OP_SUBTRACT;
+            case STAR -> Chunk.OP_MULTIPLY;
+            case SLASH -> Chunk.OP_DIVIDE;
+            case GREATER -> Chunk.OP_GREATER;
+            case GREATER_EQUAL -> Chunk.OP_GREATER_EQUAL;
+            case LESS -> Chunk.OP_LESS;
+            case LESS_EQUAL -> Chunk.OP_LESS_EQUAL;
+            case EQUAL_EQUAL -> Chunk.OP_EQUAL;
+            case BANG_EQUAL -> Chunk.OP_NOT_EQUAL;
+            default -> throw new IllegalArgumentException("Unknown binary operator " + expr.operator.type);
+        };
+        chunk.write(op, expr.operator);
+        // Two operands in, one result out
+        depth--;
+    }
+
+    @Override
+    public Void visitErrorExpr(Expr.Error expr) {
+        throw new IllegalArgumentException("Cannot compile code with syntax errors");
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        return expr.expression.accept(this);
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+
+        if (value == null) {
+            chunk.write(Chunk.OP_NIL, null);
+        } else if (value instanceof Boolean bool) {
+            chunk.write(bool ? Chunk.OP_TRUE : Chunk.OP_FALSE, null);
+        } else if (value instanceof Double number) {
+            int slot = numberSlots.computeIfAbsent(number, key -> chunk.addNumber(number));
+            writeWithOperand(Chunk.OP_NUMBER, Chunk.OP_NUMBER_LONG, slot);
+        } else {
+            int slot = constantSlots.computeIfAbsent(value, key -> chunk.addConstant(value));
+            writeWithOperand(Chunk.OP_CONSTANT, Chunk.OP_CONSTANT_LONG, slot);
+        }
+
+        depth++;
+        chunk.maxStack = Math.max(chunk.maxStack, depth);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        expr.right.accept(this);
+
+        byte op = switch (expr.operator.type) {
+            case MINUS -> Chunk.OP_NEGATE;
+            case BANG -> Chunk.OP_NOT;
+            default -> throw new IllegalArgumentException("Unknown unary operator " + expr.operator.type);
+        };
+        chunk.write(op, expr.operator);
+        return null;
+    }
+
+    private void writeWithOperand(byte shortOp, byte longOp, int slot) {
+        if (slot < Chunk.SHORT_LIMIT) {
+            chunk.write(shortOp, null);
+            chunk.write((byte) slot, null);
+            return;
+        }
+
+        if (slot >= Chunk.LONG_LIMIT) {
+            throw new IllegalStateException("Too many constants in one chunk.");
+        }
+
+        chunk.write(longOp, null);
+        chunk.write((byte) (slot >>> 16), null);
+        chunk.write((byte) (slot >>> 8), null);
+        chunk.write((byte) slot, null);
+    }
+}
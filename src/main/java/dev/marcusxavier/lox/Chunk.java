@@ -0,0 +1,68 @@
+package dev.marcusxavier.lox;
+
+import java.util.Arrays;
+
+// A compiled expression: one opcode byte per instruction, followed by its operand bytes if it has any.
+// Number constants live unboxed in their own pool, the other constants (strings) in a second one.
+final class Chunk {
+    static final byte OP_NUMBER = 0;
+    static final byte OP_NUMBER_LONG = 1;
+    static final byte OP_CONSTANT = 2;
+    static final byte OP_CONSTANT_LONG = 3;
+    static final byte OP_NIL = 4;
+    static final byte OP_TRUE = 5;
+    static final byte OP_FALSE = 6;
+    static final byte OP_NEGATE = 7;
+    static final byte OP_NOT = 8;
+    static final byte OP_ADD = 9;
+    static final byte OP_SUBTRACT = 10;
+    static final byte OP_MULTIPLY = 11;
+    static final byte OP_DIVIDE = 12;
+    static final byte OP_GREATER = 13;
+    static final byte OP_GREATER_EQUAL = 14;
+    static final byte OP_LESS = 15;
+    static final byte OP_LESS_EQUAL = 16;
+    static final byte OP_EQUAL = 17;
+    static final byte OP_NOT_EQUAL = 18;
+    static final byte OP_RETURN = 19;
+
+    // Operands of the short forms are one byte, the _LONG forms take three
+    static final int SHORT_LIMIT = 1 << 8;
+    static final int LONG_LIMIT = 1 << 24;
+
+    byte[] code = new byte[64];
+    // Operator token of the instruction at the same offset, for runtime errors. null for the others.
+    Token[] tokens = new Token[64];
+    int count = 0;
+
+    double[] numbers = new double[8];
+    int numberCount = 0;
+    Object[] constants = new Object[8];
+    int constantCount = 0;
+
+    // Deepest the VM stack gets while running this chunk
+    int maxStack = 0;
+
+    void write(byte op, Token token) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            tokens = Arrays.copyOf(tokens, count * 2);
+        }
+
+        code[count] = op;
+        tokens[count] = token;
+        count++;
+    }
+
+    int addNumber(double value) {
+        if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+        numbers[numberCount] = value;
+        return numberCount++;
+    }
+
+    int addConstant(Object value) {
+        if (constantCount == constants.length) constants = Arrays.copyOf(constants, constantCount * 2);
+        constants[constantCount] = value;
+        return constantCount++;
+    }
+}
@@ -0,0 +1,245 @@
+package dev.marcusxavier.lox;
+
+import java.util.ArrayDeque;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+// Turns an expression into a tree of lambdas, once, so evaluating it skips the accept/visit double dispatch and
+// the switch on the operator type at every node.
+//
+// As in JitCompiler, the type of every value is known up front: a number node becomes a DoubleSupplier, a boolean
+// one a BooleanSupplier, and nil and strings a Supplier<Object>. The visitor returns one of those three. Nodes whose
+// operands have the wrong type become a lambda that evaluates both operands and then raises the Interpreter's
+// error.
+class ClosureCompiler implements Expr.Visitor<Object> {
+    // Longer chains of binary operators run as one loop, see visitBinaryExpr
+    static final int MAX_NESTED = 64;
+
+    Supplier<Object> compile(Expr expr) {
+        return value(expr.accept(this));
+    }
+
+    // A chain of binary operators like 1 + 2 + 3 + ... is walked down its left side in a loop, one level of
+    // recursion per operator would run out of stack on a long chain. Running it would too, since the lambda of
+    // each operator calls the one below it, so past MAX_NESTED operators the chain becomes a single lambda that
+    // loops over them.
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        ArrayDeque<Expr.Binary> chain = new ArrayDeque<>();
+        Expr left = expr;
+        while (left instanceof Expr.Binary binary) {
+            chain.push(binary);
+            left = binary.left;
+        }
+
+        Object first = left.accept(this);
+        Token[] operators = new Token[chain.size()];
+        Object[] rights = new Object[chain.size()];
+        // Whether every operator is arithmetic on two numbers
+        boolean numeric = true;
+        Object node = first;
+        for (int i = 0; i < operators.length; i++) {
+            Expr.Binary binary = chain.pop();
+            operators[i] = binary.operator;
+            rights[i] = binary.right.accept(this);
+            numeric &= node instanceof DoubleSupplier && rights[i] instanceof DoubleSupplier
+                    && isArithmetic(binary.operator.type);
+            node = operation(node, binary.operator, rights[i]);
+        }
+
+        if (operators.length <= MAX_NESTED) return node;
+        return loop(first, operators, rights, numeric, node);
+    }
+
+    // left operator right, with both operands compiled
+    private Object operation(Object left, Token operator, Object right) {
+        if (left instanceof DoubleSupplier l && right instanceof DoubleSupplier r) {
+            return switch (operator.type) {
+                case PLUS -> (DoubleSupplier) () -> l.getAsDouble() + r.getAsDouble();
+                case MINUS -> (DoubleSupplier) () -> l.getAsDouble() - r.getAsDouble();
+                case STAR -> (DoubleSupplier) () -> l.getAsDouble() * r.getAsDouble();
+                case SLASH -> (DoubleSupplier) () -> l.getAsDouble() / r.getAsDouble();
+                case GREATER -> (BooleanSupplier) () -> l.getAsDouble() > r.getAsDouble();
+                case GREATER_EQUAL -> (BooleanSupplier) () -> l.getAsDouble() >= r.getAsDouble();
+                case LESS -> (BooleanSupplier) () -> l.getAsDouble() < r.getAsDouble();
+                case LESS_EQUAL -> (BooleanSupplier) () -> l.getAsDouble() <= r.getAsDouble();
+                // Double.equals semantics: NaN equals itself, 0.0 and -0.0 differ
+                case EQUAL_EQUAL -> (BooleanSupplier) () -> Double.compare(l.getAsDouble(), r.getAsDouble()) == 0;
+                case BANG_EQUAL -> (BooleanSupplier) () -> Double.compare(l.getAsDouble(), r.getAsDouble()) != 0;
+                default -> throw new IllegalArgumentException("Unknown binary operator " + operator.type);
+            };
+        }
+
+        switch (operator.type) {
+            case PLUS -> {
+                if (isValue(left) && isValue(right)) {
+                    // Strings, or nil which is an error
+                    Supplier<Object> l = value(left);
+                    Supplier<Object> r = value(right);
+                    return (Supplier<Object>) () -> Interpreter.concat(l.get(), r.get(), operator);
+                }
+                return fail(left, right, operator, "Operands must be two numbers or two strings.");
+            }
+            case MINUS, STAR, SLASH, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                return fail(left, right, operator, "Operands must be numbers.");
+            }
+            case EQUAL_EQUAL, BANG_EQUAL -> {
+                boolean equal = operator.type == TokenType.EQUAL_EQUAL;
+
+                if (left instanceof BooleanSupplier l && right instanceof BooleanSupplier r) {
+                    return equal
+                            ? (BooleanSupplier) () -> l.getAsBoolean() == r.getAsBoolean()
+                            : (BooleanSupplier) () -> l.getAsBoolean() != r.getAsBoolean();
+                }
+
+                if (isValue(left) && isValue(right)) {
+                    Supplier<Object> l = value(left);
+                    Supplier<Object> r = value(right);
+                    return equal
+                            ? (BooleanSupplier) () -> Interpreter.isEqual(l.get(), r.get())
+                            : (BooleanSupplier) () -> !Interpreter.isEqual(l.get(), r.get());
+                }
+
+                // Values of different types are never equal, but both still have to be evaluated
+                Supplier<Object> l = value(left);
+                Supplier<Object> r = value(right);
+                return (BooleanSupplier) () -> {
+                    l.get();
+                    r.get();
+                    return !equal;
+                };
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown binary operator " + operator.type);
+    }
+
+    @Override
+    public Object visitErrorExpr(Expr.Error expr) {
+        throw new IllegalArgumentException("Cannot compile code with syntax errors");
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return expr.expression.accept(this);
+    }
+
+    @Override
+    public Object visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+
+        if (value instanceof Double number) {
+            double constant = number;
+            return (DoubleSupplier) () -> constant;
+        }
+
+        if (value instanceof Boolean bool) {
+            boolean constant = bool;
+            return (BooleanSupplier) () -> constant;
+        }
+
+        return (Supplier<Object>) () -> value;
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        Object right = expr.right.accept(this);
+        Token operator = expr.operator;
+
+        switch (operator.type) {
+            case MINUS -> {
+                if (right instanceof DoubleSupplier r) return (DoubleSupplier) () -> -r.getAsDouble();
+
+                Supplier<Object> r = value(right);
+                return (DoubleSupplier) () -> {
+                    r.get();
+                    throw new RuntimeError(operator, "Operand must be a number.");
+                };
+            }
+            case BANG -> {
+                if (right instanceof BooleanSupplier r) return (BooleanSupplier) () -> !r.getAsBoolean();
+
+                // Numbers are always truthy, nil is the only falsey value left
+                if (right instanceof DoubleSupplier r) {
+                    return (BooleanSupplier) () -> {
+                        r.getAsDouble();
+                        return false;
+                    };
+                }
+
+                Supplier<Object> r = value(right);
+                return (BooleanSupplier) () -> r.get() == null;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown unary operator " + operator.type);
+    }
+
+    // The chain first operators[0] rights[0] operators[1] rights[1] ... as one lambda. It evaluates operands in the
+    // same order and raises the same errors as the nested lambdas in nested, and has the same type, nested is only
+    // kept for that. Arithmetic on numbers stays unboxed, other chains go through Interpreter.binary.
+    @SuppressWarnings("unchecked")
+    private static Object loop(Object first, Token[] operators, Object[] rights, boolean numeric, Object nested) {
+        if (numeric) {
+            DoubleSupplier l = (DoubleSupplier) first;
+            DoubleSupplier[] r = new DoubleSupplier[rights.length];
+            for (int i = 0; i < r.length; i++) r[i] = (DoubleSupplier) rights[i];
+
+            return (DoubleSupplier) () -> {
+                double value = l.getAsDouble();
+                for (int i = 0; i < r.length; i++) {
+                    double right = r[i].getAsDouble();
+                    value = switch (operators[i].type) {
+                        case PLUS -> value + right;
+                        case MINUS -> value - right;
+                        case STAR -> value * right;
+                        default -> value / right;
+                    };
+                }
+                return value;
+            };
+        }
+
+        Supplier<Object> l = value(first);
+        Supplier<Object>[] r = (Supplier<Object>[]) new Supplier<?>[rights.length];
+        for (int i = 0; i < r.length; i++) r[i] = value(rights[i]);
+
+        Supplier<Object> chain = () -> {
+            Object value = l.get();
+            for (int i = 0; i < r.length; i++) value = Interpreter.binary(operators[i], value, r[i].get());
+            return value;
+        };
+        if (nested instanceof DoubleSupplier) return (DoubleSupplier) () -> (Double) chain.get();
+        if (nested instanceof BooleanSupplier) return (BooleanSupplier) () -> (Boolean) chain.get();
+        return chain;
+    }
+
+    private static boolean isArithmetic(TokenType type) {
+        return type == TokenType.PLUS || type == TokenType.MINUS || type == TokenType.STAR || type == TokenType.SLASH;
+    }
+
+    // Evaluates both operands and raises the error. Its type does not matter since it never returns, whatever
+    // uses it raises the error too.
+    private Object fail(Object left, Object right, Token operator, String message) {
+        Supplier<Object> l = value(left);
+        Supplier<Object> r = value(right);
+        return (Supplier<Object>) () -> {
+            l.get();
+            r.get();
+            throw new RuntimeError(operator, message);
+        };
+    }
+
+    private static boolean isValue(Object node) {
+        return !(node instanceof DoubleSupplier) && !(node instanceof BooleanSupplier);
+    }
+
+    // Any node as a Supplier<Object>, boxing its result
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> value(Object node) {
+        if (node instanceof DoubleSupplier number) return () -> number.getAsDouble();
+        if (node instanceof BooleanSupplier bool) return () -> bool.getAsBoolean();
+        return (Supplier<Object>) node;
+    }
+}
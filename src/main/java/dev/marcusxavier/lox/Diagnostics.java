@@ -0,0 +1,68 @@
+package dev.marcusxavier.lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// The errors of one compilation. Each scan and parse gets its own, so several scripts can be scanned and parsed
+// at the same time (see Lox --batch). Not thread safe itself, a compilation runs on one thread at a time.
+//
+// Messages are either printed as they come (the REPL and single scripts) or kept in order to be printed later
+// (batch mode, where the output of concurrent compilations must not interleave).
+public final class Diagnostics implements ErrorReporter {
+    // null when collecting
+    private final PrintStream out;
+    private final List<String> messages = new ArrayList<>();
+    private int count = 0;
+
+    private Diagnostics(PrintStream out) {
+        this.out = out;
+    }
+
+    public static Diagnostics printing(PrintStream out) {
+        return new Diagnostics(out);
+    }
+
+    public static Diagnostics collecting() {
+        return new Diagnostics(null);
+    }
+
+    @Override
+    public void error(int line, String message) {
+        report(String.format("[Line %s] Error %s: %s", line, "", message));
+    }
+
+    @Override
+    public void error(Token token, String message) {
+        String where = token.type == TokenType.EOF ? " at end" : String.format(" at '%s'", token.lexeme);
+
+        if (token.column() == 0) {
+            report(String.format("[Line %s] Error %s: %s", token.line(), where, message));
+        } else {
+            report(String.format("[Line %s:%s] Error %s: %s", token.line(), token.column(), where,
+                    message));
+        }
+    }
+
+    private void report(String message) {
+        count++;
+        if (out != null) {
+            out.println(message);
+        } else {
+            messages.add(message);
+        }
+    }
+
+    public boolean hadError() {
+        return count > 0;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // The collected messages in the order they were reported, always empty when printing
+    public List<String> messages() {
+        return messages;
+    }
+}
@@ -0,0 +1,78 @@
+package dev.marcusxavier.lox;
+
+// Prints a Chunk one instruction per line. The instructions come out in the same postfix order PolishAstPrinter
+// prints the expression in.
+class Disassembler {
+    private static final String[] NAMES = {
+            "OP_NUMBER", "OP_NUMBER_LONG", "OP_CONSTANT", "OP_CONSTANT_LONG", "OP_NIL", "OP_TRUE", "OP_FALSE",
+            "OP_NEGATE", "OP_NOT", "OP_ADD", "OP_SUBTRACT", "OP_MULTIPLY", "OP_DIVIDE", "OP_GREATER",
+            "OP_GREATER_EQUAL", "OP_LESS", "OP_LESS_EQUAL", "OP_EQUAL", "OP_NOT_EQUAL", "OP_RETURN",
+    };
+
+    String disassemble(Chunk chunk) {
+        StringBuilder builder = new StringBuilder();
+
+        int offset = 0;
+        while (offset < chunk.count) {
+            offset = instruction(chunk, offset, builder);
+        }
+
+        return builder.toString();
+    }
+
+    // Appends the instruction at offset and returns the offset of the next one
+    private int instruction(Chunk chunk, int offset, StringBuilder builder) {
+        byte op = chunk.code[offset];
+        builder.append(String.format("%04d ", offset));
+
+        // Line of the operator, only operators have a token
+        Token token = chunk.tokens[offset];
+        builder.append(token == null ? "   | " : String.format("%4d ", token.line()));
+        builder.append(NAMES[op]);
+
+        switch (op) {
+            case Chunk.OP_NUMBER -> {
+                int slot = chunk.code[offset + 1] & 0xff;
+                builder.append(String.format(" %d '%s'", slot, Interpreter.stringify(chunk.numbers[slot])));
+                offset += 2;
+            }
+            case Chunk.OP_NUMBER_LONG -> {
+                int slot = readLong(chunk, offset + 1);
+                builder.append(String.format(" %d '%s'", slot, Interpreter.stringify(chunk.numbers[slot])));
+                offset += 4;
+            }
+            case Chunk.OP_CONSTANT -> {
+                int slot = chunk.code[offset + 1] & 0xff;
+                builder.append(String.format(" %d '%s'", slot, chunk.constants[slot]));
+                offset += 2;
+            }
+            case Chunk.OP_CONSTANT_LONG -> {
+                int slot = readLong(chunk, offset + 1);
+                builder.append(String.format(" %d '%s'", slot, chunk.constants[slot]));
+                offset += 4;
+            }
+            default -> offset += 1;
+        }
+
+        builder.append('\n');
+        return offset;
+    }
+
+    private static int readLong(Chunk chunk, int offset) {
+        return (chunk.code[offset] & 0xff) << 16 | (chunk.code[offset + 1] & 0xff) << 8
+                | (chunk.code[offset + 2] & 0xff);
+    }
+
+    public static void main(String[] args) {
+        Expr expression = new Expr.Binary(
+                new Expr.Unary(
+                        new Token(TokenType.MINUS, "-", null, 1),
+                        new Expr.Literal(123.0)),
+                new Token(TokenType.STAR, "*", null, 1),
+                new Expr.Grouping(
+                        new Expr.Literal(45.67)));
+
+        System.out.println(new PolishAstPrinter().print(expression));
+        System.out.print(new Disassembler().disassemble(new BytecodeCompiler().compile(expression)));
+    }
+}
@@ -0,0 +1,12 @@
+package dev.marcusxavier.lox;
+
+// Where the scanner and the parser send their errors. Diagnostics prints or collects them for one compilation,
+// the parallel scanner buffers them until it knows whether a speculatively scanned chunk is kept.
+public interface ErrorReporter {
+    void error(int line, String message);
+
+    // Parser errors, at the token where parsing failed
+    default void error(Token token, String message) {
+        error(token.line(), message);
+    }
+}
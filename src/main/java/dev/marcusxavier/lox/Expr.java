@@ -6,6 +6,8 @@ abstract class Expr {
     interface Visitor<R> {
         R visitBinaryExpr(Binary expr);
 
+        R visitErrorExpr(Error expr);
+
         R visitGroupingExpr(Grouping expr);
 
         R visitLiteralExpr(Literal expr);
@@ -30,6 +32,21 @@ abstract class Expr {
         final Expr right;
     }
 
+    static class Error extends Expr {
+        Error(Token token, List<Expr> parts) {
+            this.token = token;
+            this.parts = parts;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitErrorExpr(this);
+        }
+
+        final Token token;
+        final List<Expr> parts;
+    }
+
     static class Grouping extends Expr {
         Grouping(Expr expression) {
             this.expression = expression;
@@ -72,4 +89,7 @@ abstract class Expr {
     }
 
     abstract <R> R accept(Visitor<R> visitor);
+
+    // Changes whenever the node types change, so data saved with other node types can be told apart
+    static final int SCHEMA = -953684592;
 }
\ No newline at end of file
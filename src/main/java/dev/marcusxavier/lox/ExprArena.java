@@ -0,0 +1,397 @@
+package dev.marcusxavier.lox;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// An expression tree packed into an int[]: NODE_SIZE ints per node, instead of a node object, a Token and a boxed
+// literal per node. Number literals go to a double[] pool, strings and booleans to an Object[] one.
+//
+// Nodes are stored children first, so a node's children always have lower indexes, the root is the last node and a
+// single forward pass over the array visits the tree bottom up. Subtrees shared between several parents (as with
+// HashConsingFactory) are stored once.
+//
+// Each node is: kind | operator ordinal << KIND_BITS, then left (or only) child or pool index, then right child,
+// then the operator's line.
+//
+// Existing visitors run on the arena through accept() (or view()), which builds each node only when the visitor
+// gets to it, so the object tree never exists in full. toExpr() rebuilds all of it at once, for passes that need
+// it. Code that walks the arena directly uses kind(), left(), right() and friends.
+final class ExprArena {
+    static final int BINARY = 0;
+    static final int GROUPING = 1;
+    static final int UNARY = 2;
+    // Literal in numbers[]
+    static final int NUMBER = 3;
+    // Literal in values[], nil included
+    static final int VALUE = 4;
+    // Syntax error, the token type and line are kept like an operator's. Its parts (the parser builds at most two)
+    // are its left and right children, NO_PART where there is none.
+    static final int ERROR = 5;
+    static final int NO_PART = -1;
+
+    private static final int NODE_SIZE = 4;
+    private static final int KIND_BITS = 3;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    // Value pool entries in write()/read()
+    private static final byte NIL_TAG = 0;
+    private static final byte TRUE_TAG = 1;
+    private static final byte FALSE_TAG = 2;
+    private static final byte STRING_TAG = 3;
+
+    private int[] nodes = new int[NODE_SIZE * 64];
+    private int count = 0;
+    private double[] numbers = new double[16];
+    private int numberCount = 0;
+    private Object[] values = new Object[16];
+    private int valueCount = 0;
+
+    private ExprArena() {
+    }
+
+    // Packs a tree without recursing, so left leaning trees of any depth are fine
+    static ExprArena of(Expr root) {
+        ExprArena arena = new ExprArena();
+        Map<Expr, Integer> stored = new IdentityHashMap<>();
+
+        // A node is pushed once to get its children stored first, then again (expanded) to store itself
+        ArrayDeque<Expr> pending = new ArrayDeque<>();
+        ArrayDeque<Boolean> expanded = new ArrayDeque<>();
+        pending.push(root);
+        expanded.push(false);
+
+        while (!pending.isEmpty()) {
+            Expr expr = pending.pop();
+            boolean ready = expanded.pop();
+            if (stored.containsKey(expr)) continue;
+
+            if (ready) {
+                stored.put(expr, arena.store(expr, stored));
+                continue;
+            }
+
+            pending.push(expr);
+            expanded.push(true);
+            // Right pushed first so the left subtree gets the lower indexes
+            if (expr instanceof Expr.Binary binary) {
+                pending.push(binary.right);
+                expanded.push(false);
+                pending.push(binary.left);
+                expanded.push(false);
+            } else if (expr instanceof Expr.Grouping grouping) {
+                pending.push(grouping.expression);
+                expanded.push(false);
+            } else if (expr instanceof Expr.Unary unary) {
+                pending.push(unary.right);
+                expanded.push(false);
+            } else if (expr instanceof Expr.Error error) {
+                for (int i = error.parts.size() - 1; i >= 0; i--) {
+                    pending.push(error.parts.get(i));
+                    expanded.push(false);
+                }
+            }
+        }
+
+        arena.trim();
+        return arena;
+    }
+
+    // Drops the spare capacity left by growing, the arena does not change once built
+    private void trim() {
+        nodes = Arrays.copyOf(nodes, count * NODE_SIZE);
+        numbers = Arrays.copyOf(numbers, numberCount);
+        values = Arrays.copyOf(values, valueCount);
+    }
+
+    private int store(Expr expr, Map<Expr, Integer> stored) {
+        if (expr instanceof Expr.Binary binary) {
+            return add(BINARY, binary.operator, stored.get(binary.left), stored.get(binary.right));
+        }
+
+        if (expr instanceof Expr.Grouping grouping) {
+            return add(GROUPING, null, stored.get(grouping.expression), 0);
+        }
+
+        if (expr instanceof Expr.Unary unary) {
+            return add(UNARY, unary.operator, stored.get(unary.right), 0);
+        }
+
+        if (expr instanceof Expr.Error error) {
+            if (error.parts.size() > 2) throw new IllegalArgumentException("Error node with more than two parts.");
+            int left = error.parts.isEmpty() ? NO_PART : stored.get(error.parts.get(0));
+            int right = error.parts.size() < 2 ? NO_PART : stored.get(error.parts.get(1));
+            return add(ERROR, error.token, left, right);
+        }
+
+        Object value = ((Expr.Literal) expr).value;
+        if (value instanceof Double number) {
+            if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+            numbers[numberCount] = number;
+            return add(NUMBER, null, numberCount++, 0);
+        }
+
+        if (valueCount == values.length) values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount] = value;
+        return add(VALUE, null, valueCount++, 0);
+    }
+
+    private int add(int kind, Token operator, int left, int right) {
+        if (count * NODE_SIZE == nodes.length) nodes = Arrays.copyOf(nodes, nodes.length * 2);
+
+        int at = count * NODE_SIZE;
+        nodes[at] = kind | (operator == null ? 0 : operator.type.ordinal() << KIND_BITS);
+        nodes[at + 1] = left;
+        nodes[at + 2] = right;
+        nodes[at + 3] = operator == null ? 0 : operator.line();
+        return count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int root() {
+        return count - 1;
+    }
+
+    int kind(int node) {
+        return nodes[node * NODE_SIZE] & KIND_MASK;
+    }
+
+    // For BINARY, UNARY and ERROR nodes
+    TokenType operator(int node) {
+        return TYPES[nodes[node * NODE_SIZE] >>> KIND_BITS];
+    }
+
+    int line(int node) {
+        return nodes[node * NODE_SIZE + 3];
+    }
+
+    // The only child of GROUPING and UNARY nodes, the left one of BINARY and ERROR nodes
+    int left(int node) {
+        return nodes[node * NODE_SIZE + 1];
+    }
+
+    int right(int node) {
+        return nodes[node * NODE_SIZE + 2];
+    }
+
+    double number(int node) {
+        return numbers[nodes[node * NODE_SIZE + 1]];
+    }
+
+    Object value(int node) {
+        return kind(node) == NUMBER ? (Object) number(node) : values[nodes[node * NODE_SIZE + 1]];
+    }
+
+    // Writes the arena in the layout read() expects. Values are tagged, strings are written as a length and their
+    // UTF-8 bytes since writeUTF stops at 64 KB.
+    void write(DataOutput out) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count * NODE_SIZE; i++) out.writeInt(nodes[i]);
+
+        out.writeInt(numberCount);
+        for (int i = 0; i < numberCount; i++) out.writeDouble(numbers[i]);
+
+        out.writeInt(valueCount);
+        for (int i = 0; i < valueCount; i++) {
+            Object value = values[i];
+            if (value == null) {
+                out.writeByte(NIL_TAG);
+            } else if (value instanceof Boolean bool) {
+                out.writeByte(bool ? TRUE_TAG : FALSE_TAG);
+            } else {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(STRING_TAG);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    // size is how many bytes in holds. Every length read is checked against it before anything is allocated, so
+    // a damaged length fails with an IOException and not an OutOfMemoryError. Child indexes are checked too, they
+    // must point to an earlier node.
+    static ExprArena read(DataInput in, long size) throws IOException {
+        ExprArena arena = new ExprArena();
+
+        arena.count = length(in, (long) NODE_SIZE * Integer.BYTES, size);
+        arena.nodes = new int[arena.count * NODE_SIZE];
+        for (int i = 0; i < arena.nodes.length; i++) arena.nodes[i] = in.readInt();
+
+        arena.numberCount = length(in, Double.BYTES, size);
+        arena.numbers = new double[arena.numberCount];
+        for (int i = 0; i < arena.numberCount; i++) arena.numbers[i] = in.readDouble();
+
+        arena.valueCount = length(in, 1, size);
+        arena.values = new Object[arena.valueCount];
+        for (int i = 0; i < arena.valueCount; i++) {
+            arena.values[i] = switch (in.readByte()) {
+                case NIL_TAG -> null;
+                case TRUE_TAG -> true;
+                case FALSE_TAG -> false;
+                case STRING_TAG -> {
+                    byte[] bytes = new byte[length(in, 1, size)];
+                    in.readFully(bytes);
+                    yield new String(bytes, StandardCharsets.UTF_8);
+                }
+                default -> throw new IOException("Bad value tag.");
+            };
+        }
+
+        arena.check();
+        return arena;
+    }
+
+    // A count of items of itemBytes each, which all have to fit in size bytes
+    private static int length(DataInput in, long itemBytes, long size) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length * itemBytes > size) throw new IOException("Bad length " + length + ".");
+        return length;
+    }
+
+    private void check() throws IOException {
+        if (count == 0) throw new IOException("Empty tree.");
+
+        for (int node = 0; node < count; node++) {
+            boolean valid = switch (kind(node)) {
+                case BINARY -> isChild(left(node), node) && isChild(right(node), node);
+                case GROUPING, UNARY -> isChild(left(node), node);
+                case NUMBER -> left(node) >= 0 && left(node) < numberCount;
+                case VALUE -> left(node) >= 0 && left(node) < valueCount;
+                case ERROR -> isPart(left(node), node) && isPart(right(node), node)
+                        && (left(node) != NO_PART || right(node) == NO_PART);
+                default -> false;
+            };
+            int type = nodes[node * NODE_SIZE] >>> KIND_BITS;
+            if (!valid || type >= TYPES.length) throw new IOException("Bad node " + node + ".");
+        }
+    }
+
+    private static boolean isChild(int child, int parent) {
+        return child >= 0 && child < parent;
+    }
+
+    private static boolean isPart(int part, int error) {
+        return part == NO_PART || isChild(part, error);
+    }
+
+    // Bytes held by the arena's arrays, for comparing with the object tree
+    long footprint() {
+        return 4L * nodes.length + 8L * numbers.length + 4L * values.length;
+    }
+
+    // Runs visitor on the tree as view() shows it
+    <R> R accept(Expr.Visitor<R> visitor) {
+        return view().accept(visitor);
+    }
+
+    // The root as an Expr that only stands for it. Accepting a visitor builds that one node, with stand-ins like
+    // this one as its children, and hands it to the visitor. So a visitor that gets to children through accept(),
+    // like AstPrinter, sees the whole tree while only the nodes it is working on exist. Stand-ins are not the node
+    // types themselves, a pass that looks at the type of a child (as the Optimizer does) finds nothing it knows.
+    // Except down the left of a binary node: its whole left spine is built as real Expr.Binary nodes, since the
+    // passes walk operator chains in a loop by their type and would otherwise recurse once per operator.
+    Expr view() {
+        return new View(root());
+    }
+
+    private final class View extends Expr {
+        private final int node;
+
+        View(int node) {
+            this.node = node;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return build(node).accept(visitor);
+        }
+    }
+
+    // Just node, with views as its children, or a binary node's left spine
+    private Expr build(int node) {
+        return switch (kind(node)) {
+            case BINARY -> spine(node);
+            case GROUPING -> new Expr.Grouping(new View(left(node)));
+            case UNARY -> new Expr.Unary(token(node), new View(left(node)));
+            case ERROR -> {
+                if (left(node) == NO_PART) yield new Expr.Error(token(node), List.of());
+                if (right(node) == NO_PART) yield new Expr.Error(token(node), List.of(new View(left(node))));
+                yield new Expr.Error(token(node), List.of(new View(left(node)), new View(right(node))));
+            }
+            default -> new Expr.Literal(value(node));
+        };
+    }
+
+    // The binary nodes down the left of node, built bottom up, with views for the right operands and the first one
+    private Expr spine(int node) {
+        int length = 0;
+        for (int binary = node; kind(binary) == BINARY; binary = left(binary)) length++;
+
+        int[] spine = new int[length];
+        int bottom = node;
+        for (int i = 0; i < length; i++, bottom = left(bottom)) spine[i] = bottom;
+
+        Expr built = new View(bottom);
+        for (int i = length - 1; i >= 0; i--) {
+            built = new Expr.Binary(built, token(spine[i]), new View(right(spine[i])));
+        }
+        return built;
+    }
+
+    // Rebuilds the object tree in one forward pass, children always come before their parents
+    Expr toExpr() {
+        Expr[] built = new Expr[count];
+
+        for (int node = 0; node < count; node++) {
+            built[node] = switch (kind(node)) {
+                case BINARY -> new Expr.Binary(built[left(node)], token(node), built[right(node)]);
+                case GROUPING -> new Expr.Grouping(built[left(node)]);
+                case UNARY -> new Expr.Unary(token(node), built[left(node)]);
+                case ERROR -> new Expr.Error(token(node), parts(node, built));
+                default -> new Expr.Literal(value(node));
+            };
+        }
+
+        return built[root()];
+    }
+
+    // The parts of an ERROR node, from the nodes built so far
+    private List<Expr> parts(int node, Expr[] built) {
+        if (left(node) == NO_PART) return List.of();
+        if (right(node) == NO_PART) return List.of(built[left(node)]);
+        return List.of(built[left(node)], built[right(node)]);
+    }
+
+    // The column is not kept, only the line runtime errors print
+    private Token token(int node) {
+        TokenType type = operator(node);
+        return new Token(type, lexeme(type), null, line(node));
+    }
+
+    private static String lexeme(TokenType type) {
+        return switch (type) {
+            case BANG -> "!";
+            case BANG_EQUAL -> "!=";
+            case EQUAL_EQUAL -> "==";
+            case GREATER -> ">";
+            case GREATER_EQUAL -> ">=";
+            case LESS -> "<";
+            case LESS_EQUAL -> "<=";
+            case MINUS -> "-";
+            case PLUS -> "+";
+            case SLASH -> "/";
+            case STAR -> "*";
+            default -> type.name();
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package dev.marcusxavier.lox;
+
+// Where the Parser gets its nodes from.
+//
+// Expr nodes have identity equality and no structural hash. HashConsingFactory makes structurally equal trees
+// the same object, but only among the trees that one factory built. Trees from PLAIN, from another factory, from
+// ExprArena or the .loxc cache never compare equal to them, so anything keyed by tree (like ResultCache) only
+// matches trees built by the same HashConsingFactory.
+interface ExprFactory {
+    // A new node every time
+    ExprFactory PLAIN = new ExprFactory() {
+        @Override
+        public Expr binary(Expr left, Token operator, Expr right) {
+            return new Expr.Binary(left, operator, right);
+        }
+
+        @Override
+        public Expr.Grouping grouping(Expr expression) {
+            return new Expr.Grouping(expression);
+        }
+
+        @Override
+        public Expr literal(Object value) {
+            return new Expr.Literal(value);
+        }
+
+        @Override
+        public Expr unary(Token operator, Expr right) {
+            return new Expr.Unary(operator, right);
+        }
+    };
+
+    Expr binary(Expr left, Token operator, Expr right);
+
+    Expr.Grouping grouping(Expr expression);
+
+    Expr literal(Object value);
+
+    Expr unary(Token operator, Expr right);
+}
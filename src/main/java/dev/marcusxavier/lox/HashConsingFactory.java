@@ -0,0 +1,68 @@
+package dev.marcusxavier.lox;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Hands out one shared node per distinct subtree, so a script that repeats the same subexpression many times gets
+// a single copy of it (the tree becomes a DAG).
+//
+// Nodes are built bottom up and their children are already interned, so two nodes are structurally equal exactly
+// when they have the same operator and the very same child objects. That makes the key of a node a few fields
+// compared by identity, its hash and equality cost the same whatever the size of the subtree.
+//
+// Operators are compared by type and line, not by Token: runtime errors only print the line, so a shared node
+// reports its errors exactly as each copy would have.
+class HashConsingFactory implements ExprFactory {
+    private record Key(TokenType type, int line, Expr left, Expr right) {
+    }
+
+    private static final Expr.Literal NIL = new Expr.Literal(null);
+    private static final Expr.Literal TRUE = new Expr.Literal(true);
+    private static final Expr.Literal FALSE = new Expr.Literal(false);
+
+    // Double.equals keeps 0.0 and -0.0 apart, as the Interpreter's equality does
+    private final Map<Object, Expr.Literal> literals = new HashMap<>();
+    private final Map<Expr, Expr.Grouping> groupings = new IdentityHashMap<>();
+    private final Map<Key, Expr> operations = new HashMap<>();
+    private int requested = 0;
+
+    @Override
+    public Expr binary(Expr left, Token operator, Expr right) {
+        requested++;
+        return operations.computeIfAbsent(new Key(operator.type, operator.line(), left, right),
+                key -> new Expr.Binary(left, operator, right));
+    }
+
+    @Override
+    public Expr.Grouping grouping(Expr expression) {
+        requested++;
+        return groupings.computeIfAbsent(expression, Expr.Grouping::new);
+    }
+
+    @Override
+    public Expr literal(Object value) {
+        requested++;
+        if (value == null) return NIL;
+        if (value instanceof Boolean bool) return bool ? TRUE : FALSE;
+
+        return literals.computeIfAbsent(value, Expr.Literal::new);
+    }
+
+    @Override
+    public Expr unary(Token operator, Expr right) {
+        requested++;
+        return operations.computeIfAbsent(new Key(operator.type, operator.line(), null, right),
+                key -> new Expr.Unary(operator, right));
+    }
+
+    // Nodes the parser asked for
+    int requested() {
+        return requested;
+    }
+
+    // Distinct nodes handed out, the shared nil, true and false not counted
+    int distinct() {
+        return literals.size() + groupings.size() + operations.size();
+    }
+}
@@ -0,0 +1,133 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Relexer;
+import dev.marcusxavier.lox.scanner.TokenGapBuffer;
+
+// Re-scans and re-parses an edited source reusing what the edit did not touch, for editor tooling that checks
+// the same large file after every keystroke.
+//
+// The frontend owns the document: the source and its tokens live in a TokenGapBuffer that every edit changes in
+// place, and Relexer only re-scans around the edit. Parenthesized groups are the unit of reuse for the tree: the
+// group a '(' opens is kept with that token, and is handed back to the Parser as is while no edit lands inside
+// it. Tokens in a group's tree are relative to the group's Origin, so a group that an edit moved to another line
+// or column is put in place in one step.
+//
+// What an edit costs still grows with the file in a few places:
+// - the gaps of the text and the tokens move from the last edit to this one, so far apart edits copy what is
+//   between them
+// - the parser steps over every top level operand, one step for a reused group, and the operator nodes of a flat
+//   chain around the edit are built again
+// - source() copies the whole text out
+// - past MAX_EDITS edits without a parse free of syntax errors every group is dropped, see edit()
+//
+// Not thread safe. A snapshot's tree shares reused groups with the next ones, so the lines and columns of its
+// tokens follow the latest edit.
+class IncrementalFrontend implements Parser.GroupCache {
+    static final class Snapshot {
+        // Has Expr.Error nodes where the source has syntax errors
+        final Expr expression;
+        // The errors of this edit: syntax errors anywhere, but scan errors only in the text that was re-scanned
+        final Diagnostics diagnostics;
+        // How many groups the parse got back instead of parsing them, for tooling and tests
+        final int reusedGroups;
+
+        private Snapshot(Expr expression, Diagnostics diagnostics, int reusedGroups) {
+            this.expression = expression;
+            this.diagnostics = diagnostics;
+            this.reusedGroups = reusedGroups;
+        }
+    }
+
+    // Edits kept track of until a parse goes through without syntax errors
+    static final int MAX_EDITS = 64;
+
+    private TokenGapBuffer tokens;
+    // Token indexes where the edits since the last parse without syntax errors were. A kept group whose '(' is
+    // before one of them and whose ')' is at or after it is out of date. Groups are only dropped as the parser comes
+    // by them, and one with a syntax error in it may not be parsed again, so the edits stay until a parse has no
+    // errors.
+    private final int[] edits = new int[MAX_EDITS];
+    private int editCount = 0;
+    private int reused = 0;
+
+    // Starts over with a new source
+    Snapshot parse(String source) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        tokens = TokenGapBuffer.scan(source, diagnostics);
+        editCount = 0;
+        return parse(diagnostics);
+    }
+
+    // Replaces [start, end) of the current source with replacement
+    Snapshot edit(int start, int end, String replacement) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Relexer.Result relex = Relexer.relex(tokens, start, end, replacement, diagnostics);
+
+        // Later edits move with the tokens, the ones in the re-scanned part are at its start now
+        int oldSuffixStart = relex.suffixStart() - relex.indexShift();
+        int count = 0;
+        boolean found = false;
+        for (int i = 0; i < editCount; i++) {
+            int edit = edits[i];
+            if (edit >= oldSuffixStart) {
+                edit += relex.indexShift();
+            } else if (edit > relex.prefix()) {
+                edit = relex.prefix();
+            }
+            if (edit == relex.prefix()) {
+                if (found) continue;
+                found = true;
+            }
+            edits[count++] = edit;
+        }
+        editCount = count;
+
+        if (!found) {
+            if (editCount == MAX_EDITS) {
+                // Linear, but only after many edits that all left syntax errors
+                tokens.clearAttachments();
+                editCount = 0;
+            } else {
+                edits[editCount++] = relex.prefix();
+            }
+        }
+
+        return parse(diagnostics);
+    }
+
+    // The current source, copied out of the document
+    String source() {
+        return tokens.text();
+    }
+
+    @Override
+    public Parser.Group reuse(int open) {
+        Parser.Group group = (Parser.Group) tokens.attachment(open);
+        if (group == null) return null;
+
+        for (int i = 0; i < editCount; i++) {
+            if (open < edits[i] && edits[i] < open + group.tokens()) {
+                tokens.attach(open, null);
+                return null;
+            }
+        }
+
+        reused++;
+        return group;
+    }
+
+    @Override
+    public void parsed(int open, Parser.Group group) {
+        tokens.attach(open, group);
+    }
+
+    private Snapshot parse(Diagnostics diagnostics) {
+        int scanErrors = diagnostics.count();
+        reused = 0;
+        Expr expression = new Parser(tokens, this, Parser.DEFAULT_MAX_NESTING, ExprFactory.PLAIN, diagnostics).parse();
+
+        // Every group with an edit in it was parsed again, or dropped
+        if (diagnostics.count() == scanErrors) editCount = 0;
+        return new Snapshot(expression, diagnostics, reused);
+    }
+}
@@ -0,0 +1,227 @@
+package dev.marcusxavier.lox;
+
+import java.util.Arrays;
+
+class Interpreter implements Expr.Visitor<Object> {
+    // The numeric fast path returns primitive doubles. When a subexpression turns out not to be a number
+    // (a string concatenation, a comparison...) its boxed value is parked here instead, and the caller decides
+    // whether that is an error or a value that has to be passed upwards.
+    private boolean spilled = false;
+    private Object spill = null;
+    // Binary nodes of the chains being evaluated, see binary()
+    private Expr.Binary[] chain = new Expr.Binary[16];
+    private int chainSize = 0;
+
+    Object evaluate(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        // Box only once, at the root of the chain
+        double value = binary(expr);
+        if (spilled) return takeSpill();
+        return value;
+    }
+
+    @Override
+    public Object visitErrorExpr(Expr.Error expr) {
+        // Lox does not run trees the parser reported errors in, this is for other callers
+        throw new RuntimeError(expr.token, "Cannot evaluate code with syntax errors.");
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return evaluate(expr.expression);
+    }
+
+    @Override
+    public Object visitLiteralExpr(Expr.Literal expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        switch (expr.operator.type) {
+            case BANG -> {
+                return !isTruthy(evaluate(expr.right));
+            }
+            case MINUS -> {
+                double value = number(expr);
+                if (spilled) return takeSpill();
+                return value;
+            }
+        }
+
+        // Unreachable.
+        return null;
+    }
+
+    // Evaluates expr without boxing intermediate results. Operands are always evaluated left to right and
+    // fully before being checked, so errors are raised in the same order as the boxed visitor would raise them.
+    private double number(Expr expr) {
+        if (expr instanceof Expr.Literal literal && literal.value instanceof Double value) {
+            return value;
+        }
+
+        if (expr instanceof Expr.Grouping grouping) {
+            return number(grouping.expression);
+        }
+
+        if (expr instanceof Expr.Unary unary && unary.operator.type == TokenType.MINUS) {
+            double right = number(unary.right);
+            if (spilled) {
+                checkNumberOperand(unary.operator, takeSpill());
+            }
+            return -right;
+        }
+
+        if (expr instanceof Expr.Binary binary) {
+            return binary(binary);
+        }
+
+        return spillIfNotNumber(evaluate(expr));
+    }
+
+    // Evaluates a chain of binary operators like 1 + 2 + 3 + ... down its left side in a loop, one level of
+    // recursion per operator would run out of stack on a long chain. The operators are stacked on chain from the
+    // root down, then applied from the bottom up. A number is returned as is, any other value is spilled.
+    private double binary(Expr.Binary expr) {
+        int base = chainSize;
+        Expr left = expr;
+        while (left instanceof Expr.Binary binary) {
+            if (chainSize == chain.length) chain = Arrays.copyOf(chain, chainSize * 2);
+            chain[chainSize++] = binary;
+            left = binary.left;
+        }
+
+        try {
+            double value = number(left);
+            while (chainSize > base) {
+                Expr.Binary operation = chain[--chainSize];
+                chain[chainSize] = null;
+                value = apply(operation, value);
+            }
+            return value;
+        } finally {
+            // A runtime error leaves the rest of the chain behind
+            Arrays.fill(chain, base, chainSize, null);
+            chainSize = base;
+        }
+    }
+
+    // Applies expr's operator to left, the value of expr.left (a number, or spilled), and to expr.right
+    private double apply(Expr.Binary expr, double left) {
+        boolean leftIsNumber = !spilled;
+        Object boxedLeft = takeSpill();
+
+        if (expr.operator.type == TokenType.BANG_EQUAL || expr.operator.type == TokenType.EQUAL_EQUAL) {
+            boolean equal = isEqual(leftIsNumber ? (Object) left : boxedLeft, evaluate(expr.right));
+            return spillIfNotNumber(expr.operator.type == TokenType.EQUAL_EQUAL ? equal : !equal);
+        }
+
+        double right = number(expr.right);
+        boolean rightIsNumber = !spilled;
+        Object boxedRight = takeSpill();
+
+        if (leftIsNumber && rightIsNumber) {
+            return switch (expr.operator.type) {
+                case MINUS -> left - right;
+                case SLASH -> left / right;
+                case STAR -> left * right;
+                case PLUS -> left + right;
+                case GREATER -> spillIfNotNumber(left > right);
+                case GREATER_EQUAL -> spillIfNotNumber(left >= right);
+                case LESS -> spillIfNotNumber(left < right);
+                default -> spillIfNotNumber(left <= right);
+            };
+        }
+
+        Object l = leftIsNumber ? (Object) left : boxedLeft;
+        Object r = rightIsNumber ? (Object) right : boxedRight;
+        return spillIfNotNumber(binary(expr.operator, l, r));
+    }
+
+    private double spillIfNotNumber(Object value) {
+        if (value instanceof Double number) return number;
+
+        spilled = true;
+        spill = value;
+        return 0;
+    }
+
+    private Object takeSpill() {
+        Object value = spill;
+        spilled = false;
+        spill = null;
+        return value;
+    }
+
+    private void checkNumberOperand(Token operator, Object operand) {
+        if (operand instanceof Double) return;
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    private boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+
+    // Lox semantics shared with the compiled tiers, JitCompiler calls these from the code it generates
+
+    static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) return true;
+        if (a == null) return false;
+
+        return a.equals(b);
+    }
+
+    // + on values that are not both numbers
+    static Object concat(Object left, Object right, Token operator) {
+        if (left instanceof String l && right instanceof String r) return l + r;
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
+    // A binary operator on operands already evaluated, for compiled code that has them boxed
+    static Object binary(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case BANG_EQUAL -> {
+                return !isEqual(left, right);
+            }
+            case EQUAL_EQUAL -> {
+                return isEqual(left, right);
+            }
+        }
+
+        if (!(left instanceof Double l && right instanceof Double r)) {
+            if (operator.type == TokenType.PLUS) return concat(left, right, operator);
+            throw new RuntimeError(operator, "Operands must be numbers.");
+        }
+
+        return switch (operator.type) {
+            case MINUS -> l - r;
+            case SLASH -> l / r;
+            case STAR -> l * r;
+            case PLUS -> l + r;
+            case GREATER -> l > r;
+            case GREATER_EQUAL -> l >= r;
+            case LESS -> l < r;
+            default -> l <= r;
+        };
+    }
+
+    static String stringify(Object object) {
+        if (object == null) return "nil";
+
+        if (object instanceof Double) {
+            String text = object.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+
+        return object.toString();
+    }
+}
@@ -1,80 +1,404 @@
 package dev.marcusxavier.lox;
 
+import dev.marcusxavier.lox.scanner.ParallelScanner;
 import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import dev.marcusxavier.lox.scanner.TokenBuffer;
+import dev.marcusxavier.lox.scanner.TokenSource;
+import dev.marcusxavier.lox.scanner.TokenStream;
+import jdk.jfr.Recording;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 
 public class Lox {
-    static boolean hadError = false;
+    // How expressions are executed once parsed
+    private enum Mode {
+        TREE,    // the tree walking Interpreter
+        VM,      // compiled to a Chunk and run on the VM
+        CLOSURE, // compiled to a tree of lambdas
+    }
+
+    private static final Interpreter interpreter = new Interpreter();
+    private static final VM vm = new VM();
+    static boolean hadRuntimeError = false;
+    // Scan scripts in chunks on all cores, only worth it for very large inputs
+    private static boolean parallelScan = false;
+    private static Mode mode = Mode.TREE;
+    // How deeply groups and prefix operators may nest, --max-nesting. Chains like a + b + c + ... do not count.
+    private static int maxNesting = Parser.DEFAULT_MAX_NESTING;
+    private static int maxErrors = Parser.DEFAULT_MAX_ERRORS;
+    // Parsed trees of script files, by content hash. Off unless --cache is given.
+    private static ParseCache cache = null;
+    // Entries per level of the REPL's ResultCache
+    private static int resultCapacity = ResultCache.DEFAULT_CAPACITY;
+    // Shared by all threads, registered over JMX by the REPL
+    private static final LoxMetrics metrics = new LoxMetrics();
+    // Started by --jfr, written out on exit
+    private static Recording recording = null;
     
     public static void main(String @NotNull [] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
+        // Results go out through one buffer instead of a write to the file descriptor per println. It is flushed
+        // on exit, before runtime errors and after each REPL line.
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, System.out.charset()));
+
+        String script = null;
+        String batchDirectory = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String cacheDirectory = null;
+        long cacheBytes = ParseCache.DEFAULT_MAX_BYTES;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--parallel")) {
+                parallelScan = true;
+            } else if (arg.equals("--mode") && i + 1 < args.length) {
+                mode = parseMode(args[++i]);
+            } else if (arg.equals("--max-nesting") && i + 1 < args.length) {
+                maxNesting = parseCount(args[++i]);
+            } else if (arg.equals("--max-errors") && i + 1 < args.length) {
+                maxErrors = parseCount(args[++i]);
+            } else if (arg.equals("--batch") && i + 1 < args.length) {
+                batchDirectory = args[++i];
+            } else if (arg.equals("--jobs") && i + 1 < args.length) {
+                jobs = parseCount(args[++i]);
+            } else if (arg.equals("--jfr") && i + 1 < args.length) {
+                recording = LoxEvents.record(Paths.get(args[++i]));
+            } else if (arg.equals("--cache") && i + 1 < args.length) {
+                cacheDirectory = args[++i];
+            } else if (arg.equals("--cache-size") && i + 1 < args.length) {
+                cacheBytes = (long) parseCount(args[++i]) << 20;
+            } else if (arg.equals("--repl-cache") && i + 1 < args.length) {
+                resultCapacity = parseCount(args[++i]);
+            } else if (script == null) {
+                script = arg;
+            } else {
+                usage();
+            }
         }
 
-        if (args.length == 1) {
-            runFile(args[0]);
-            System.exit(0);
+        if (batchDirectory != null) {
+            if (script != null) usage();
+            exit(runBatch(Paths.get(batchDirectory), jobs));
+        }
+
+        if (cacheDirectory != null) cache = new ParseCache(Paths.get(cacheDirectory), cacheBytes);
+
+        if ("-".equals(script)) {
+            // Script piped on stdin, e.g. from a generator
+            runSource(SourceText.of(new String(System.in.readAllBytes(), Charset.defaultCharset())));
+            exit(0);
+        }
+
+        if (script != null) {
+            runFile(script);
+            exit(0);
         }
 
         runPrompt();
+        exit(0);
+    }
+
+    private static void exit(int status) {
+        System.out.flush();
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+        }
+        System.exit(status);
     }
 
-    public static void error(int line, String message) {
-        report(line, "", message);
+    private static void usage() {
+        System.out.println("Usage: jlox [--parallel] [--mode tree|vm|closure] [--max-nesting n] [--max-errors n] "
+                + "[--cache dir [--cache-size mb]] [--repl-cache entries] [--jfr file] [script | -]");
+        System.out.println("       jlox --batch dir [--jobs n] [--max-nesting n] [--max-errors n] [--jfr file]");
+        exit(64);
+    }
+
+    private static Mode parseMode(String name) {
+        for (Mode candidate : Mode.values()) {
+            if (candidate.name().equalsIgnoreCase(name)) return candidate;
+        }
+
+        usage();
+        return null;
+    }
+
+    private static int parseCount(String text) {
+        try {
+            int count = Integer.parseInt(text);
+            if (count > 0) return count;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage();
+        return 0;
     }
-   
+
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-      
-        if (hadError) System.exit(65);
+        Path file = Paths.get(path);
+        if (cache == null) {
+            // Scanned straight from the mapped UTF-8 bytes, without reading and decoding the whole file first
+            runSource(SourceText.map(file));
+            return;
+        }
+
+        // An unchanged script does not get scanned or parsed again
+        Diagnostics diagnostics = Diagnostics.printing(System.err);
+        String key = ParseCache.key(file, maxNesting);
+        Expr expression = cache.load(key);
+        if (expression == null) {
+            expression = parse(SourceText.map(file), diagnostics);
+            if (!diagnostics.hadError()) cache.store(key, expression);
+        }
+
+        if (!diagnostics.hadError()) execute(expression);
+        exitOnError(diagnostics);
+    }
+
+    private static void runSource(SourceText source) {
+        Diagnostics diagnostics = Diagnostics.printing(System.err);
+        Expr expression = parse(source, diagnostics);
+        if (!diagnostics.hadError()) execute(expression);
+        exitOnError(diagnostics);
+    }
+
+    private static void exitOnError(Diagnostics diagnostics) {
+        if (diagnostics.hadError()) exit(65);
+        if (hadRuntimeError) exit(70);
+    }
+
+    // Scans and parses (without running) every .lox file under directory, jobs files at a time, each on its own
+    // virtual thread. The report lists the files in path order whatever order they finish in. The exit status: 74
+    // if a file could not be read, else 65 if any file has an error.
+    private static int runBatch(Path directory, int jobs) throws IOException {
+        // A batch over a large tree can run for a while, it is watched over JMX like a REPL session
+        metrics.register();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(path -> path.toString().endsWith(".lox") && Files.isRegularFile(path))
+                    .sorted()
+                    .toList();
+        }
+
+        // Bounds how many files are mapped and parsed at once, virtual threads alone would start them all
+        Semaphore permits = new Semaphore(jobs);
+        List<Future<Diagnostics>> results;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results = files.stream().map(file -> executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return check(file);
+                } finally {
+                    permits.release();
+                }
+            })).toList();
+        }
+
+        int failed = 0;
+        int unreadable = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Diagnostics diagnostics;
+            try {
+                diagnostics = results.get(i).get();
+            } catch (ExecutionException e) {
+                // Not a syntax error, so it has no line and is kept out of the diagnostics
+                if (!(e.getCause() instanceof IOException cause)) {
+                    throw new IllegalStateException("Batch check of " + files.get(i) + " failed", e);
+                }
+                unreadable++;
+                System.err.printf("%s: could not read the file: %s%n", files.get(i), cause.getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Batch check of " + files.get(i) + " failed", e);
+            }
+
+            if (!diagnostics.hadError()) continue;
+            failed++;
+            System.err.printf("%s: %d error(s)%n", files.get(i), diagnostics.count());
+            for (String message : diagnostics.messages()) System.err.printf("  %s%n", message);
+        }
+
+        System.out.printf("Checked %d file(s), %d with errors", files.size(), failed);
+        if (unreadable > 0) System.out.printf(", %d could not be read", unreadable);
+        System.out.println();
+        if (unreadable > 0) return 74;
+        return failed > 0 ? 65 : 0;
+    }
+
+    private static Diagnostics check(Path file) throws IOException {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        parse(SourceText.map(file), diagnostics);
+        return diagnostics;
     }
 
     private static void runPrompt() throws IOException {
+        // A REPL session can last for hours, its numbers can be watched with jconsole or any local JMX client
+        metrics.register();
+        ResultCache results = new ResultCache(resultCapacity);
+
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
 
         while (true) {
             System.out.print("> ");
+            System.out.flush();
             String line = reader.readLine();
             if (line == null) break;
-            run(line);
-            hadError = false; 
+
+            ResultCache.Result result = results.get(line);
+            if (result != null) {
+                metrics.resultHit(true);
+                show(result);
+                continue;
+            }
+
+            // A fresh one per line, so an error does not stick to the next lines
+            Diagnostics diagnostics = Diagnostics.printing(System.err);
+            Expr expression = parse(SourceText.of(line), diagnostics, results.factory());
+            if (diagnostics.hadError()) continue;
+
+            // The same expression written differently
+            result = results.get(expression);
+            if (result != null) {
+                metrics.resultHit(false);
+                show(result);
+            } else {
+                metrics.resultMissed();
+                result = execute(expression);
+            }
+            results.put(line, expression, result);
         }
     }
   
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        Expr expression = parser.parse();
-      
-        if (hadError) return;
-      
-        System.out.println(new AstPrinter().print(expression));
+    private static Expr parse(SourceText source, Diagnostics diagnostics) {
+        return parse(source, diagnostics, ExprFactory.PLAIN);
     }
-  
-  
-    private static void report(int line, String where, String message) {
-        System.err.printf("[Line %s] Error %s: %s%n", line, where, message);
-        hadError = true; 
+
+    private static Expr parse(SourceText source, Diagnostics diagnostics, ExprFactory factory) {
+        TokenSource tokens;
+        if (parallelScan) {
+            tokens = scan(source, diagnostics);
+        } else {
+            // The parser pulls tokens from the scanner as it goes, so the token list is never built in full
+            tokens = new TokenStream(new Scanner(source, diagnostics));
+        }
+
+        int errorsBefore = diagnostics.count();
+        LoxEvents.Parse event = new LoxEvents.Parse();
+        long started = System.nanoTime();
+        event.begin();
+        Expr expression = new Parser(tokens, null, maxNesting, factory, diagnostics, maxErrors).parse();
+        event.end();
+        if (metrics.registered()) {
+            metrics.parsed(System.nanoTime() - started, typeCounts(tokens), diagnostics.hadError());
+        }
+
+        if (event.shouldCommit()) {
+            event.sourceSize = source.length();
+            event.streamed = tokens instanceof TokenStream;
+            event.tokens = tokens instanceof TokenStream stream ? stream.pulled() : ((TokenBuffer) tokens).size();
+            event.errors = diagnostics.count() - errorsBefore;
+            LoxEvents.measure(event, expression);
+            event.commit();
+        }
+        return expression;
     }
-  
-    static public void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.locationLine, " at end", message);
+
+    private static TokenBuffer scan(SourceText source, Diagnostics diagnostics) {
+        LoxEvents.Scan event = new LoxEvents.Scan();
+        long started = System.nanoTime();
+        event.begin();
+        TokenBuffer tokens = new ParallelScanner(source, ForkJoinPool.commonPool(), diagnostics).scanTokens();
+        event.end();
+        metrics.scanned(System.nanoTime() - started);
+
+        if (event.shouldCommit()) {
+            event.sourceSize = source.length();
+            event.tokens = tokens.size();
+            event.errors = diagnostics.count();
+            event.commit();
+        }
+        return tokens;
+    }
+
+    // Optimizes, runs and prints the expression, the Execute event and the execute latency cover all three
+    private static ResultCache.Result execute(Expr expression) {
+        LoxEvents.Execute event = new LoxEvents.Execute();
+        long started = System.nanoTime();
+        event.begin();
+        // Constant parts are computed once here instead of on every evaluation
+        Optimizer optimizer = new Optimizer();
+        ResultCache.Result result = run(optimizer.optimize(expression));
+        show(result);
+        event.end();
+        metrics.executed(System.nanoTime() - started, result.error() != null, optimizer.removed());
+
+        if (event.shouldCommit()) {
+            event.mode = mode.name().toLowerCase();
+            event.errors = result.error() != null ? 1 : 0;
+            event.nodesRemoved = optimizer.removed();
+            LoxEvents.measure(event, expression);
+            event.commit();
+        }
+        return result;
+    }
+
+    private static void show(ResultCache.Result result) {
+        if (result.error() != null) {
+            runtimeError(result.error());
         } else {
-            String where = String.format(" at '%s'", token.lexeme);
-            report(token.locationLine, where, message);
+            System.out.println(Interpreter.stringify(result.value()));
         }
     }
+
+    // Tokens by TokenType ordinal. A stream counts them as they go by, a buffer still has them all.
+    private static int[] typeCounts(TokenSource tokens) {
+        if (tokens instanceof TokenStream stream) return stream.typeCounts();
+
+        TokenBuffer buffer = (TokenBuffer) tokens;
+        int[] counts = new int[TokenType.values().length];
+        for (int i = 0; i < buffer.size(); i++) counts[buffer.type(i).ordinal()]++;
+        return counts;
+    }
+
+    private static ResultCache.Result run(Expr optimized) {
+        try {
+            Object value = switch (mode) {
+                case TREE -> interpreter.evaluate(optimized);
+                case VM -> vm.run(new BytecodeCompiler().compile(optimized));
+                case CLOSURE -> new ClosureCompiler().compile(optimized).get();
+            };
+            return new ResultCache.Result(value, null);
+        } catch (RuntimeError error) {
+            return new ResultCache.Result(null, error);
+        }
+    }
+  
+  
+    static void runtimeError(RuntimeError error) {
+        // Keeps it after the output that came before it
+        System.out.flush();
+        System.err.printf("%s%n[line %s]%n", error.getMessage(), error.token.line());
+        hadRuntimeError = true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package dev.marcusxavier.lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+
+// Flight Recorder events for the phases of a run, see tool.JfrSummary for reading them back.
+//
+// Without a recording an event costs an allocation the JIT usually removes and a check of a flag, so they are
+// always emitted. Lox --jfr starts a recording of just these, -XX:StartFlightRecording records them too. The
+// numbers that take work to get (node count and depth walk the whole tree) are only filled in for events that
+// are going to be committed.
+final class LoxEvents {
+    private LoxEvents() {
+    }
+
+    // Fields are 0 where the phase does not know them
+    @Category("Lox")
+    @StackTrace(false)
+    abstract static class Phase extends Event {
+        @Label("Source Size")
+        @Description("Length of the source as scanned: bytes for a mapped UTF-8 file, chars for a string")
+        int sourceSize;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Depth")
+        @Description("Nodes on the longest path from the root")
+        int depth;
+
+        @Label("Errors")
+        int errors;
+    }
+
+    @Name("dev.marcusxavier.lox.Scan")
+    @Label("Scan")
+    @Description("Scanning a whole source up front, as the parallel scanner does")
+    static final class Scan extends Phase {
+    }
+
+    @Name("dev.marcusxavier.lox.Parse")
+    @Label("Parse")
+    static final class Parse extends Phase {
+        @Label("Streamed")
+        @Description("Tokens were scanned as the parser asked for them, so this includes scanning")
+        boolean streamed;
+    }
+
+    @Name("dev.marcusxavier.lox.Execute")
+    @Label("Execute")
+    @Description("Optimizing, running and printing one expression")
+    static final class Execute extends Phase {
+        @Label("Mode")
+        String mode;
+
+        @Label("Nodes Removed")
+        @Description("Nodes the Optimizer folded away before running, nodes and depth are of the tree before that")
+        int nodesRemoved;
+    }
+
+    // Records the Lox events, without threshold, until the recording is stopped. Then it is written to file.
+    static Recording record(Path file) throws IOException {
+        Recording recording = new Recording();
+        for (Class<? extends Event> type : List.of(Scan.class, Parse.class, Execute.class)) {
+            recording.enable(type).withoutThreshold();
+        }
+        recording.setDestination(file);
+        recording.start();
+        return recording;
+    }
+
+    // Sets nodes and depth, without recursing
+    static void measure(Phase event, Expr root) {
+        ArrayDeque<Expr> pending = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        pending.push(root);
+        depths.push(1);
+
+        while (!pending.isEmpty()) {
+            Expr expr = pending.pop();
+            int depth = depths.pop();
+            event.nodes++;
+            event.depth = Math.max(event.depth, depth);
+
+            if (expr instanceof Expr.Binary binary) {
+                pending.push(binary.left);
+                depths.push(depth + 1);
+                pending.push(binary.right);
+                depths.push(depth + 1);
+            } else if (expr instanceof Expr.Grouping grouping) {
+                pending.push(grouping.expression);
+                depths.push(depth + 1);
+            } else if (expr instanceof Expr.Unary unary) {
+                pending.push(unary.right);
+                depths.push(depth + 1);
+            } else if (expr instanceof Expr.Error error) {
+                for (Expr part : error.parts) {
+                    pending.push(part);
+                    depths.push(depth + 1);
+                }
+            }
+        }
+    }
+}
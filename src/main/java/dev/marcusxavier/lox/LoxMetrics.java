@@ -0,0 +1,178 @@
+package dev.marcusxavier.lox;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms for every stage, updated by Lox and read over JMX. Nothing here takes a lock:
+// batch mode records from many threads at once and a JMX client reads while they do.
+//
+// Token types are counted per compilation in a plain int[] indexed by ordinal (see TokenStream.typeCounts) and
+// added here once the compilation is done, only while registered since nothing could read them otherwise.
+public final class LoxMetrics implements LoxMetricsMXBean {
+    static final String OBJECT_NAME = "dev.marcusxavier.lox:type=Metrics";
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder parseFailures = new LongAdder();
+    private final LongAdder runtimeErrors = new LongAdder();
+    private final LongAdder nodesRemoved = new LongAdder();
+    private final LongAdder sourceHits = new LongAdder();
+    private final LongAdder treeHits = new LongAdder();
+    private final LongAdder resultMisses = new LongAdder();
+    private final LatencyHistogram scan = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final AtomicLongArray tokenCounts = new AtomicLongArray(TYPES.length);
+    private volatile boolean registered;
+
+    // Registers with the platform MBean server, where local JMX clients find it without any setup
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            System.err.printf("Could not register the metrics MBean: %s%n", e.getMessage());
+        }
+    }
+
+    // Whether anyone can read these. Lox skips the token counts when not, a buffer has to be walked again for them.
+    boolean registered() {
+        return registered;
+    }
+
+    void scanned(long nanos) {
+        scan.record(nanos);
+    }
+
+    void parsed(long nanos, int[] typeCounts, boolean failed) {
+        lines.increment();
+        parse.record(nanos);
+        if (failed) parseFailures.increment();
+
+        long total = 0;
+        for (int ordinal = 0; ordinal < typeCounts.length; ordinal++) {
+            if (typeCounts[ordinal] == 0) continue;
+            tokenCounts.addAndGet(ordinal, typeCounts[ordinal]);
+            total += typeCounts[ordinal];
+        }
+        tokens.add(total);
+    }
+
+    void executed(long nanos, boolean failed, int removed) {
+        execute.record(nanos);
+        if (failed) runtimeErrors.increment();
+        nodesRemoved.add(removed);
+    }
+
+    // A REPL line found in the ResultCache, by its text or else by its tree
+    void resultHit(boolean bySource) {
+        (bySource ? sourceHits : treeHits).increment();
+    }
+
+    void resultMissed() {
+        resultMisses.increment();
+    }
+
+    @Override
+    public long getLinesProcessed() {
+        return lines.sum();
+    }
+
+    @Override
+    public long getTokensScanned() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getParseFailures() {
+        return parseFailures.sum();
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+        return runtimeErrors.sum();
+    }
+
+    @Override
+    public long getNodesRemoved() {
+        return nodesRemoved.sum();
+    }
+
+    @Override
+    public long getResultSourceHits() {
+        return sourceHits.sum();
+    }
+
+    @Override
+    public long getResultTreeHits() {
+        return treeHits.sum();
+    }
+
+    @Override
+    public long getResultMisses() {
+        return resultMisses.sum();
+    }
+
+    @Override
+    public double getScanP50Micros() {
+        return scan.percentile(50) / 1e3;
+    }
+
+    @Override
+    public double getScanP99Micros() {
+        return scan.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getParseP50Micros() {
+        return parse.percentile(50) / 1e3;
+    }
+
+    @Override
+    public double getParseP99Micros() {
+        return parse.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getExecuteP50Micros() {
+        return execute.percentile(50) / 1e3;
+    }
+
+    @Override
+    public double getExecuteP99Micros() {
+        return execute.percentile(99) / 1e3;
+    }
+
+    @Override
+    public Map<String, Long> getTokenCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TokenType type : TYPES) {
+            long count = tokenCounts.get(type.ordinal());
+            if (count > 0) counts.put(type.name(), count);
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        lines.reset();
+        tokens.reset();
+        parseFailures.reset();
+        runtimeErrors.reset();
+        nodesRemoved.reset();
+        sourceHits.reset();
+        treeHits.reset();
+        resultMisses.reset();
+        scan.reset();
+        parse.reset();
+        execute.reset();
+        for (int i = 0; i < TYPES.length; i++) tokenCounts.set(i, 0);
+    }
+}
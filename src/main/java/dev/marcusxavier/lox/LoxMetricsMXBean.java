@@ -0,0 +1,47 @@
+package dev.marcusxavier.lox;
+
+import java.util.Map;
+
+// What LoxMetrics exposes over JMX, as dev.marcusxavier.lox:type=Metrics. An MXBean so that generic clients
+// (jconsole, VisualVM, jmxterm) can read every attribute, the token counts come out as a table.
+public interface LoxMetricsMXBean {
+    // REPL lines or --batch files that got parsed. Only those two register the MBean, a script run is not counted.
+    // REPL lines found by their text in the result cache are only counted as source hits.
+    long getLinesProcessed();
+
+    long getTokensScanned();
+
+    // Lines with at least one scan or parse error
+    long getParseFailures();
+
+    long getRuntimeErrors();
+
+    // Nodes the Optimizer folded or simplified away before execution, over all executed lines
+    long getNodesRemoved();
+
+    // REPL result cache lookups: lines seen before, lines that parsed to a tree seen before, and lines evaluated
+    long getResultSourceHits();
+
+    long getResultTreeHits();
+
+    long getResultMisses();
+
+    // Latencies in microseconds. Parse includes scanning when tokens are streamed to the parser, Scan is only
+    // recorded when the whole source is scanned first (--parallel).
+    double getScanP50Micros();
+
+    double getScanP99Micros();
+
+    double getParseP50Micros();
+
+    double getParseP99Micros();
+
+    double getExecuteP50Micros();
+
+    double getExecuteP99Micros();
+
+    // Tokens scanned so far by TokenType name, types never seen left out
+    Map<String, Long> getTokenCounts();
+
+    void reset();
+}
@@ -0,0 +1,149 @@
+package dev.marcusxavier.lox;
+
+import java.util.ArrayDeque;
+
+// Folds the constant parts of an expression before it is interpreted. Every leaf is a literal, so most trees fold
+// down to a single Literal.
+//
+// Folding goes through the Interpreter itself, so results are exactly what evaluating the tree would give. A node
+// that would raise a runtime error is kept as is (with its children folded), so the error is still raised, with the
+// same token, when the tree is evaluated.
+class Optimizer implements Expr.Visitor<Expr> {
+    private final Interpreter interpreter = new Interpreter();
+    private int removed = 0;
+
+    Expr optimize(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Nodes removed so far, by folding or simplification
+    int removed() {
+        return removed;
+    }
+
+    // A chain of binary operators like 1 + 2 + 3 + ... is walked down its left side in a loop, one level of
+    // recursion per operator would run out of stack on a long chain
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        ArrayDeque<Expr.Binary> chain = new ArrayDeque<>();
+        Expr left = expr;
+        while (left instanceof Expr.Binary binary) {
+            chain.push(binary);
+            left = binary.left;
+        }
+
+        left = optimize(left);
+        while (!chain.isEmpty()) left = simplify(chain.pop(), left);
+        return left;
+    }
+
+    // expr with left, its left operand already optimized
+    private Expr simplify(Expr.Binary expr, Expr left) {
+        Expr right = optimize(expr.right);
+        Expr.Binary binary = left == expr.left && right == expr.right
+                ? expr
+                : new Expr.Binary(left, expr.operator, right);
+
+        if (left instanceof Expr.Literal && right instanceof Expr.Literal) {
+            Expr folded = fold(binary);
+            // The two operands go away with the operator
+            if (folded != binary) removed += 2;
+            return folded;
+        }
+
+        return binary;
+    }
+
+    @Override
+    public Expr visitErrorExpr(Expr.Error expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        // Only the parser needs parentheses
+        removed++;
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = optimize(expr.right);
+
+        // --x is x and !!x is x, but only when x is already a number (a boolean for !), otherwise the inner
+        // operator does a conversion or a check that has to stay
+        if (right instanceof Expr.Unary inner && inner.operator.type == expr.operator.type) {
+            boolean same = switch (expr.operator.type) {
+                case MINUS -> isNumber(inner.right);
+                case BANG -> isBoolean(inner.right);
+                default -> false;
+            };
+
+            if (same) {
+                removed += 2;
+                return inner.right;
+            }
+        }
+
+        Expr.Unary unary = right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+        if (right instanceof Expr.Literal) {
+            Expr folded = fold(unary);
+            if (folded != unary) removed++;
+            return folded;
+        }
+
+        return unary;
+    }
+
+    // The literal value of an operation on literals, or the operation itself when evaluating it is an error
+    private Expr fold(Expr expr) {
+        try {
+            return new Expr.Literal(interpreter.evaluate(expr));
+        } catch (RuntimeError error) {
+            return expr;
+        }
+    }
+
+    // Whether expr evaluates to a number whenever it does not raise an error
+    private static boolean isNumber(Expr expr) {
+        // + also concatenates strings, a chain of them is followed down its left side
+        while (expr instanceof Expr.Binary binary && binary.operator.type == TokenType.PLUS) {
+            if (!isNumber(binary.right)) return false;
+            expr = binary.left;
+        }
+
+        if (expr instanceof Expr.Literal literal) return literal.value instanceof Double;
+
+        if (expr instanceof Expr.Unary unary) return unary.operator.type == TokenType.MINUS;
+
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.operator.type) {
+                case MINUS, SLASH, STAR -> true;
+                default -> false;
+            };
+        }
+
+        return false;
+    }
+
+    // Whether expr evaluates to a boolean whenever it does not raise an error
+    private static boolean isBoolean(Expr expr) {
+        if (expr instanceof Expr.Literal literal) return literal.value instanceof Boolean;
+
+        if (expr instanceof Expr.Unary unary) return unary.operator.type == TokenType.BANG;
+
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.operator.type) {
+                case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL, BANG_EQUAL, EQUAL_EQUAL -> true;
+                default -> false;
+            };
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package dev.marcusxavier.lox;
+
+// Where the '(' of a group is, for the tokens in the group's tree that IncrementalFrontend may reuse. Their
+// positions are kept relative to it, so a reused group that moved to another line or column is put in place by
+// moving its origin, without touching its tree.
+//
+// A position relative to an origin is a line difference and, on the origin's own line only, a column difference.
+// Columns on the lines after it do not depend on anything before the group. An origin is itself relative to the
+// one of the group around it, or absolute at the top level.
+final class Origin {
+    private Origin parent;
+    private int line;
+    private int column;
+
+    // Puts the origin at line and column, which are relative to parent when there is one
+    void moveTo(Origin parent, int line, int column) {
+        this.parent = parent;
+        this.line = line;
+        this.column = column;
+    }
+
+    // Iterative, group nesting has no limit of its own
+    int line() {
+        int total = 0;
+        for (Origin origin = this; origin != null; origin = origin.parent) total += origin.line;
+        return total;
+    }
+
+    int column() {
+        int total = 0;
+        for (Origin origin = this; ; origin = origin.parent) {
+            total += origin.column;
+            if (origin.line != 0 || origin.parent == null) return total;
+        }
+    }
+
+    // line and column relative to an origin at originLine and originColumn
+    static int relativeLine(int line, int originLine) {
+        return line - originLine;
+    }
+
+    static int relativeColumn(int line, int column, int originLine, int originColumn) {
+        return line == originLine ? column - originColumn : column;
+    }
+}
@@ -0,0 +1,203 @@
+package dev.marcusxavier.lox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Parsed trees saved on disk as .loxc files, named after the SHA-256 of the script and of the parse options that
+// change the tree (--max-nesting), so running an unchanged script again skips scanning and parsing.
+//
+// A .loxc file is a header (magic, format version, Expr.SCHEMA and a hash of the TokenType names, since the tree
+// stores operators by ordinal, then the length and CRC32 of the payload) followed by the tree as an ExprArena.
+// Files with any other header are ignored and deleted, so changing the node types in GenerateAst or the token
+// types invalidates old entries. So are files whose payload does not match its CRC: a flipped bit in a number or
+// a child index would still read as a tree, just not the one that was stored.
+//
+// The directory is kept under maxBytes by deleting the least recently used entries. Reading an entry bumps its
+// modification time, which is what the eviction goes by. The directory is listed once, on the first store, and after
+// that only when the running total of what this process wrote goes over the limit, so a store does not cost a pass
+// over every entry. Other processes writing to the same directory are caught up with at the next listing.
+class ParseCache {
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final int MAGIC = 0x4C4F5843; // LOXC
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final int TOKEN_TYPES = Arrays.toString(TokenType.values()).hashCode();
+    private static final String SUFFIX = ".loxc";
+    private static final String TEMPORARY = ".tmp";
+    // Temporary files this old were left by a process that died between writing and moving them
+    private static final long STALE_MILLIS = 60 * 60 * 1000;
+
+    private final Path directory;
+    private final long maxBytes;
+    // Bytes in the directory as of the last listing plus what was stored or deleted since, -1 before the first listing
+    private long total = -1;
+
+    ParseCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    // Hex SHA-256 of the file, read through a mapping like the scanner does, and of maxNesting. A tree parsed
+    // under a higher limit must not be reused by a run with a lower one.
+    static String key(Path file, int maxNesting) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                long length = Math.min(Integer.MAX_VALUE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                digest.update(buffer);
+            }
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(maxNesting).flip());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The cached tree, or null on a miss
+    Expr load(String key) {
+        Path entry = entry(key);
+        if (!Files.isRegularFile(entry)) return null;
+
+        try {
+            // Entries are small next to the cache size, and the whole payload is needed for the CRC anyway
+            byte[] bytes = Files.readAllBytes(entry);
+            if (!isValid(bytes)) {
+                if (Files.deleteIfExists(entry) && total >= 0) total -= bytes.length;
+                return null;
+            }
+
+            int size = bytes.length - HEADER_BYTES;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_BYTES, size));
+            Expr expression = ExprArena.read(in, size).toExpr();
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return expression;
+        } catch (IOException | RuntimeException e) {
+            // Damaged past what the CRC catches, parse again and overwrite it
+            return null;
+        }
+    }
+
+    private static boolean isValid(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES) return false;
+
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT || header.getInt() != Expr.SCHEMA
+                || header.getInt() != TOKEN_TYPES || header.getInt() != bytes.length - HEADER_BYTES) {
+            return false;
+        }
+
+        return header.getInt() == crc(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // Best effort, a cache that cannot be written to is just a cache that always misses
+    void store(String key, Expr expression) {
+        Path entry = entry(key);
+
+        try {
+            // The payload is written first, its length and CRC go in the header
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            ExprArena.of(expression).write(new DataOutputStream(payload));
+            byte[] bytes = payload.toByteArray();
+
+            Path temporary = Files.createTempFile(directory, key, TEMPORARY);
+            boolean moved = false;
+            try {
+                try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT);
+                    out.writeInt(Expr.SCHEMA);
+                    out.writeInt(TOKEN_TYPES);
+                    out.writeInt(bytes.length);
+                    out.writeInt(crc(bytes, 0, bytes.length));
+                    out.write(bytes);
+                }
+
+                long replaced = Files.exists(entry) ? Files.size(entry) : 0;
+                // Other jlox processes may be reading the same directory, they must never see half a file
+                try {
+                    Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+                moved = true;
+                if (total >= 0) total += HEADER_BYTES + bytes.length - replaced;
+            } finally {
+                if (!moved) Files.deleteIfExists(temporary);
+            }
+
+            if (total < 0 || total > maxBytes) evict();
+        } catch (IOException e) {
+            System.err.printf("Could not write the parse cache: %s%n", e.getMessage());
+        }
+    }
+
+    // Lists the directory, deletes stale temporary files, then the least recently used entries until the directory
+    // fits in maxBytes
+    private void evict() throws IOException {
+        record Entry(Path path, long size, FileTime used) {
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        long stale = System.currentTimeMillis() - STALE_MILLIS;
+        total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*{" + SUFFIX + "," + TEMPORARY + "}")) {
+            for (Path file : files) {
+                try {
+                    Entry entry = new Entry(file, Files.size(file), Files.getLastModifiedTime(file));
+                    if (!file.getFileName().toString().endsWith(TEMPORARY)) {
+                        entries.add(entry);
+                        total += entry.size();
+                    } else if (entry.used().toMillis() < stale) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    // Deleted by another process in the meantime
+                }
+            }
+        }
+
+        if (total <= maxBytes) return;
+
+        entries.sort(Comparator.comparing(Entry::used));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) break;
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
@@ -1,5 +1,8 @@
 package dev.marcusxavier.lox;
 
+import dev.marcusxavier.lox.scanner.TokenSource;
+
+import java.util.Arrays;
 import java.util.List;
 
 import static dev.marcusxavier.lox.TokenType.*;
@@ -8,166 +11,441 @@ class Parser {
     private static class ParseError extends RuntimeException {
     }
 
-    private final List<Token> tokens;
+    // A parenthesized group of tokens tokens long, '(' and ')' included, depth is its nesting depth (see
+    // DEFAULT_MAX_NESTING). The tokens in the tree are relative to origin, which the parser puts at the '(' whenever
+    // the group is used.
+    record Group(int tokens, Expr.Grouping grouping, int depth, Origin origin) {
+    }
+
+    // Lets the caller hand back a group parsed earlier instead of parsing it again, see IncrementalFrontend. With
+    // a cache the tokens inside groups are kept relative to their group's Origin.
+    interface GroupCache {
+        // A group whose '(' is token open, or null to parse it
+        Group reuse(int open);
+
+        void parsed(int open, Group group);
+    }
+
+    // Trees nested deeper than this are reported as an error. The parser itself has no limit, but the tree walking
+    // passes after it recurse once per group or prefix operator. Binary operators do not count: those passes walk
+    // a chain like 1 + 1 + ... down its left side in a loop, so a chain can be as long as the source.
+    static final int DEFAULT_MAX_NESTING = 1000;
+    // Parsing stops after this many errors, past that they are mostly noise from the first ones
+    static final int DEFAULT_MAX_ERRORS = 100;
+
+    // Kinds of pending entries on the operator stack
+    private static final byte UNARY = 0;
+    private static final byte BINARY = 1;
+    private static final byte GROUP = 2;
+
+    private final TokenSource tokens;
+    private final GroupCache groups;
+    private final int maxNesting;
+    private final ExprFactory factory;
+    private final ErrorReporter reporter;
+    private final int maxErrors;
     private int current = 0;
+    private int errors = 0;
+    // Token index of the last error, recovery can run into the same token again and that is not a new error
+    private int lastError = -1;
+
+    // Operators waiting for their right operand, and the '(' of the groups still open (token index in opens)
+    private byte[] kinds = new byte[16];
+    private Token[] operators = new Token[16];
+    private int[] opens = new int[16];
+    // Error count when each group was opened
+    private int[] openErrors = new int[16];
+    private int frames = 0;
+    // Left operands of the BINARY entries, and their nesting depth
+    private Expr[] operands = new Expr[16];
+    private int[] operandDepths = new int[16];
+    private int operandCount = 0;
+    private int nesting = 0;
+    // Nesting depth of the operand being built, 0 for a literal and one more for each group or prefix operator
+    // around it. maxNesting bounds it the way tooDeep() bounds nesting, so both allow exactly maxNesting levels.
+    private int depth = 0;
+    // Stands for a subtree that got too deep. Operators applied to it are dropped instead of being reported again
+    // at every level above it.
+    private Expr.Error truncated = null;
+    // With a GroupCache, the origins of the groups still open and where each one is
+    private Origin[] origins = new Origin[16];
+    private int[] originLines = new int[16];
+    private int[] originColumns = new int[16];
+    private int originCount = 0;
+
+    Parser(TokenSource tokens) {
+        this(tokens, null);
+    }
+
+    Parser(TokenSource tokens, GroupCache groups) {
+        this(tokens, groups, DEFAULT_MAX_NESTING);
+    }
+
+    Parser(TokenSource tokens, GroupCache groups, int maxNesting) {
+        this(tokens, groups, maxNesting, ExprFactory.PLAIN);
+    }
+
+    Parser(TokenSource tokens, GroupCache groups, int maxNesting, ExprFactory factory) {
+        this(tokens, groups, maxNesting, factory, Diagnostics.printing(System.err));
+    }
+
+    // No state is shared between parsers, so several can run at once as long as each has its own reporter
+    Parser(TokenSource tokens, GroupCache groups, int maxNesting, ExprFactory factory, ErrorReporter reporter) {
+        this(tokens, groups, maxNesting, factory, reporter, DEFAULT_MAX_ERRORS);
+    }
 
-    Parser(List<Token> tokens) {
+    Parser(TokenSource tokens, GroupCache groups, int maxNesting, ExprFactory factory, ErrorReporter reporter,
+           int maxErrors) {
         this.tokens = tokens;
+        this.groups = groups;
+        this.maxNesting = maxNesting;
+        this.factory = factory;
+        this.reporter = reporter;
+        this.maxErrors = maxErrors;
     }
 
+    // Never null. After a syntax error the parser recovers and goes on, so every error in the source is reported
+    // in one pass, and the tree has an Expr.Error node for each part it could not parse. The parts of that node are
+    // what was parsed around it when there are any: 1 2 gives an Error with 1 and 2 as its parts. Only when
+    // maxErrors is reached does it give up, and the whole tree is a single Error.
     public Expr parse() {
         try {
             return expression();
         } catch (ParseError error) {
-            return null;
+            return new Expr.Error(peek(), List.of());
         }
     }
-   
+
+    // Precedence climbing over an explicit stack instead of one method (and stack frame) per precedence level,
+    // so nesting depth is bounded by maxNesting and not by the JVM stack. Builds the same trees the recursive
+    // descent grammar does:
+    //
+    //   expression -> equality
+    //   equality   -> comparison ( ( "!=" | "==" ) comparison )*
+    //   comparison -> term ( ( ">" | ">=" | "<" | "<=" ) term )*
+    //   term       -> factor ( ( "-" | "+" ) factor )*
+    //   factor     -> unary ( ( "/" | "*" ) unary )*
+    //   unary      -> ( "!" | "-" ) unary | primary
+    //   primary    -> NUMBER | STRING | "true" | "false" | "nil" | "(" expression ")"
     private Expr expression() {
-        return equality();
+        // The expression before the last token that could not continue it, and that token
+        Expr before = null;
+        Token junk = null;
+        while (true) {
+            Expr operand = operand();
+
+            while (true) {
+                // Prefix operators bind tighter than any binary one
+                while (frames > 0 && kinds[frames - 1] == UNARY) {
+                    Token operator = operators[--frames];
+                    nesting--;
+                    depth++;
+                    if (operand != truncated) operand = checkDepth(factory.unary(operator, operand));
+                }
+
+                // Left associative: everything pending that binds at least as tight takes operand as its right side
+                int precedence = precedence(peekType());
+                while (frames > 0 && kinds[frames - 1] == BINARY
+                        && precedence(operators[frames - 1].type) >= precedence) {
+                    Expr left = operands[--operandCount];
+                    Token operator = operators[--frames];
+                    depth = Math.max(operandDepths[operandCount], depth);
+
+                    if (left == truncated || operand == truncated) {
+                        operand = truncated;
+                    } else {
+                        operand = factory.binary(left, operator, operand);
+                    }
+                }
+
+                if (precedence > 0) {
+                    pushOperand(operand, depth);
+                    push(BINARY, take(), 0);
+                    break;
+                }
+
+                if (frames == 0) {
+                    if (isAtEnd()) return before == null ? operand : new Expr.Error(junk, List.of(before, operand));
+
+                    if (peekType() == RIGHT_PAREN) {
+                        // A ')' with no '(' open, drop it and go on with what follows
+                        error("Unmatched ')'.");
+                        advance();
+                        continue;
+                    }
+
+                    // Something after a complete expression. Parsing goes on from the next operand, so errors
+                    // further on are still reported. An Error node at the token takes the expressions before and
+                    // after it as its parts. An operator picks up where the expression left off instead, with the
+                    // Error node as its left operand.
+                    Token token = peek();
+                    error("Expect end of expression.");
+                    synchronize();
+                    if (!startsOperand(peekType())) {
+                        operand = new Expr.Error(token, List.of(operand));
+                        continue;
+                    }
+
+                    before = before == null ? operand : new Expr.Error(junk, List.of(before, operand));
+                    junk = token;
+                    break;
+                }
+
+                // Only a group can be left on top, and its expression is complete
+                int open = opens[--frames];
+                int errorsBefore = openErrors[frames];
+                nesting--;
+                if (!match(RIGHT_PAREN)) {
+                    // Whatever is left up to the ')' is dropped. At the end the group is just closed there.
+                    error("Expect ')' after expression");
+                    skipGroup();
+                    match(RIGHT_PAREN);
+                }
+                Origin origin = groups != null ? origins[--originCount] : null;
+                depth++;
+                if (operand == truncated) continue;
+                Expr.Grouping grouping = factory.grouping(operand);
+                operand = checkDepth(grouping);
+
+                // A group with an error in it must be parsed again, to report that error again
+                if (groups != null && errors == errorsBefore) {
+                    groups.parsed(open, new Group(current - open, grouping, depth, origin));
+                }
+            }
+        }
     }
 
-    private Expr equality() {
-        Expr expr = comparison();
-
-        while (match(BANG_EQUAL, EQUAL_EQUAL)) {
-            Token operator = previous();
-            Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
+    // Pushes prefix operators and opens groups until it gets to an operand that is complete on its own, a literal
+    // or a reused group, and sets depth to its nesting depth
+    private Expr operand() {
+        depth = 0;
+        while (true) {
+            switch (peekType()) {
+                case BANG, MINUS -> {
+                    if (tooDeep()) return skipOperand();
+                    nesting++;
+                    push(UNARY, take(), 0);
+                }
+                case LEFT_PAREN -> {
+                    int open = current;
+                    if (groups != null) {
+                        Group reused = groups.reuse(open);
+                        if (reused != null) {
+                            place(reused.origin(), open);
+                            current = open + reused.tokens();
+                            depth = reused.depth();
+                            return reused.grouping();
+                        }
+                    }
+
+                    if (tooDeep()) return skipOperand();
+                    nesting++;
+                    if (groups != null) pushOrigin(open);
+                    advance();
+                    push(GROUP, null, open);
+                }
+                case FALSE -> {
+                    advance();
+                    return factory.literal(false);
+                }
+                case TRUE -> {
+                    advance();
+                    return factory.literal(true);
+                }
+                case NIL -> {
+                    advance();
+                    return factory.literal(null);
+                }
+                case NUMBER, STRING -> {
+                    advance();
+                    return factory.literal(tokens.literal(current - 1));
+                }
+                default -> {
+                    Token token = peek();
+                    error("Expect expression");
+                    synchronize();
+                    // Parsing goes on with the next operand if there is one, otherwise the operand is missing
+                    if (!startsOperand(peekType())) return new Expr.Error(token, List.of());
+                }
+            }
         }
+    }
 
-        return expr;
+    private static boolean startsOperand(TokenType type) {
+        return switch (type) {
+            case BANG, MINUS, LEFT_PAREN, FALSE, TRUE, NIL, NUMBER, STRING -> true;
+            default -> false;
+        };
     }
 
-    private Expr comparison() {
-        Expr expr = term();
+    // 0 for tokens that are not binary operators
+    private static int precedence(TokenType type) {
+        return switch (type) {
+            case BANG_EQUAL, EQUAL_EQUAL -> 1;
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> 2;
+            case MINUS, PLUS -> 3;
+            case SLASH, STAR -> 4;
+            default -> 0;
+        };
+    }
 
-        while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
-        }
+    private boolean tooDeep() {
+        if (nesting < maxNesting) return false;
 
-        return expr;
+        error("Expression nested too deeply.");
+        return true;
     }
 
-    private Expr term() {
-        Expr expr = factor();
-
-        while (match(PLUS, MINUS)) {
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
-        }
+    // node, or truncated when depth has gone over maxNesting with it. That is reported once, at the current token,
+    // the levels built on top of truncated are dropped.
+    private Expr checkDepth(Expr node) {
+        if (depth <= maxNesting) return node;
 
-        return expr;
+        Token token = peek();
+        error("Expression nested too deeply.");
+        return truncated = new Expr.Error(token, List.of());
     }
 
-    private Expr factor() {
-        Expr expr = unary();
+    // Skips the operand that starts at the current token, prefix operators and then a literal or a whole group,
+    // and returns the node that stands for it. That is truncated, tooDeep() reported it already.
+    private Expr skipOperand() {
+        Token token = peek();
+        while (peekType() == BANG || peekType() == MINUS) advance();
 
-        while (match(STAR, SLASH)) {
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
+        if (match(LEFT_PAREN)) {
+            skipGroup();
+            match(RIGHT_PAREN);
+        } else if (startsOperand(peekType())) {
+            advance();
         }
 
-        return expr;
+        return truncated = new Expr.Error(token, List.of());
     }
 
-    private Expr unary() {
-        if (match(BANG, MINUS)) {
-            Token operator = previous();
-            Expr right = unary();
-            return new Expr.Unary(operator, right);
+    // Skips to the ')' of the group the parser is in (not past it), or to the end
+    private void skipGroup() {
+        int depth = 0;
+        while (!isAtEnd()) {
+            switch (peekType()) {
+                case LEFT_PAREN -> depth++;
+                case RIGHT_PAREN -> {
+                    if (depth == 0) return;
+                    depth--;
+                }
+            }
+            advance();
         }
-
-        return primary();
     }
 
-    private Expr primary() {
-        if (match(FALSE)) return new Expr.Literal(false);
-        if (match(TRUE)) return new Expr.Literal(true);
-        if (match(NIL)) return new Expr.Literal(null);
-
-        if (match(NUMBER, STRING)) {
-            return new Expr.Literal(previous().literal);
+    private void push(byte kind, Token operator, int open) {
+        if (frames == kinds.length) {
+            kinds = Arrays.copyOf(kinds, frames * 2);
+            operators = Arrays.copyOf(operators, frames * 2);
+            opens = Arrays.copyOf(opens, frames * 2);
+            openErrors = Arrays.copyOf(openErrors, frames * 2);
         }
 
-        if (match(LEFT_PAREN)) {
-            Expr expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression");
-            return new Expr.Grouping(expr);
-        }
+        kinds[frames] = kind;
+        operators[frames] = operator;
+        opens[frames] = open;
+        openErrors[frames] = errors;
+        frames++;
+    }
 
-        throw error(peek(), "Expect expression");
+    // Opens the origin of a group whose '(' is token open
+    private void pushOrigin(int open) {
+        if (originCount == origins.length) {
+            origins = Arrays.copyOf(origins, originCount * 2);
+            originLines = Arrays.copyOf(originLines, originCount * 2);
+            originColumns = Arrays.copyOf(originColumns, originCount * 2);
+        }
 
+        Origin origin = new Origin();
+        place(origin, open);
+        origins[originCount] = origin;
+        originLines[originCount] = tokens.line(open);
+        originColumns[originCount] = tokens.column(open);
+        originCount++;
     }
 
-    private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
+    // Puts origin at token open, relative to the innermost open group
+    private void place(Origin origin, int open) {
+        int line = tokens.line(open);
+        int column = tokens.column(open);
+        if (originCount == 0) {
+            origin.moveTo(null, line, column);
+        } else {
+            int top = originCount - 1;
+            origin.moveTo(origins[top], Origin.relativeLine(line, originLines[top]),
+                    Origin.relativeColumn(line, column, originLines[top], originColumns[top]));
+        }
+    }
 
-        throw error(peek(), message);
+    private void pushOperand(Expr operand, int depth) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+            operandDepths = Arrays.copyOf(operandDepths, operandCount * 2);
+        }
+        operands[operandCount] = operand;
+        operandDepths[operandCount] = depth;
+        operandCount++;
     }
 
+    private boolean match(TokenType type) {
+        if (!check(type)) return false;
 
-    private boolean match(TokenType... types) {
-        for (TokenType type : types) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
-        }
-        return false;
+        advance();
+        return true;
     }
 
-    private Token advance() {
+    // Only moves past the current token, most tokens (literals, parentheses) never need a Token object
+    private void advance() {
         if (!isAtEnd()) current++;
-        return previous();
+    }
+
+    // The current token, for an operator node, and moves past it
+    private Token take() {
+        Token token = peek();
+        advance();
+        return token;
     }
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type == type;
+        return peekType() == type;
     }
 
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return peekType() == EOF;
     }
 
-    private Token peek() {
-        return tokens.get(current);
+    private TokenType peekType() {
+        return tokens.type(current);
     }
 
-    private Token previous() {
-        return tokens.get(current - 1);
+    // Tokens are only materialized when an Expr node or an error message needs one
+    private Token peek() {
+        Token token = tokens.token(current);
+        if (originCount == 0) return token;
+
+        int top = originCount - 1;
+        return token.relativeTo(origins[top], originLines[top], originColumns[top]);
     }
 
-    private ParseError error(Token token, String message) {
-        Lox.error(token, message);
-        return new ParseError();
+    // Reports an error at the current token. Throws once there are maxErrors, to stop parsing.
+    private void error(String message) {
+        if (current == lastError) return;
+        lastError = current;
+
+        reporter.error(peek(), message);
+        if (++errors == maxErrors) throw new ParseError();
     }
 
+    // Panic mode: skips the tokens that can neither start an operand nor continue the expression around it
     private void synchronize() {
-        advance();
-
         while (!isAtEnd()) {
-            if (previous().type == SEMICOLON) {
-                return;
-            }
-
-            switch (peek().type) {
-                case CLASS:
-                case FUN:
-                case VAR:
-                case FOR:
-                case IF:
-                case WHILE:
-                case PRINT:
-                case RETURN:
-                    return;
-            }
-
+            TokenType type = peekType();
+            if (startsOperand(type) || precedence(type) > 0 || type == RIGHT_PAREN) return;
             advance();
         }
     }
@@ -1,41 +1,78 @@
 package dev.marcusxavier.lox;
 
-class PolishAstPrinter implements Expr.Visitor<String> {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+// Prints an expression in postfix order, straight to an Appendable. Iterative like AstPrinter: visiting a node
+// only pushes its pieces onto the pending stack.
+class PolishAstPrinter implements Expr.Visitor<Void> {
+    // Expr nodes still to visit and String pieces still to write, the next one on top
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
     String print(Expr expr) {
-        return expr.accept(this);
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expr, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    void print(Expr expr, Appendable out) throws IOException {
+        pending.clear();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Expr node) {
+                node.accept(this);
+            } else {
+                out.append((String) next);
+            }
+        }
     }
 
     @Override
-    public String visitBinaryExpr(Expr.Binary expr) {
+    public Void visitBinaryExpr(Expr.Binary expr) {
         return parenthesize(expr.operator.lexeme, expr.left, expr.right);
     }
 
     @Override
-    public String visitGroupingExpr(Expr.Grouping expr) {
+    public Void visitErrorExpr(Expr.Error expr) {
+        if (!expr.parts.isEmpty()) return parenthesize("<error>", expr.parts.toArray(new Expr[0]));
+
+        pending.push("<error> ");
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
         return parenthesize("group", expr.expression);
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
-        if (expr.value == null) return "nil";
-        return expr.value + " ";
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        pending.push(expr.value == null ? "nil" : expr.value + " ");
+        return null;
     }
 
     @Override
-    public String visitUnaryExpr(Expr.Unary expr) {
+    public Void visitUnaryExpr(Expr.Unary expr) {
         return parenthesize(expr.operator.lexeme, expr.right);
     }
 
-    private String parenthesize(String name, Expr... exprs) {
-        StringBuilder builder = new StringBuilder();
-
-        builder.append("(");
-        for (Expr expr : exprs) {
-            builder.append(expr.accept(this));
+    // Pushed last to first, so they come off the stack in print order
+    private Void parenthesize(String name, Expr... exprs) {
+        pending.push(name + ") ");
+        for (int i = exprs.length - 1; i >= 0; i--) {
+            pending.push(exprs[i]);
         }
-        builder.append(name).append(") ");
+        pending.push("(");
 
-        return builder.toString();
+        return null;
     }
 
     public static void main(String[] args) {
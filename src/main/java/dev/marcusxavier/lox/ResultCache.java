@@ -0,0 +1,67 @@
+package dev.marcusxavier.lox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Results of REPL lines, so a line entered again is not scanned, parsed or evaluated again. Lox expressions have no
+// side effects, so a line always gives the same value, or the same runtime error.
+//
+// Two levels, each keeping its capacity most recently used entries: by source text, then by tree. Lines that only
+// differ in spacing, comments or how a number is spelled parse to the same tree. They are parsed with factory(), a
+// HashConsingFactory, so structurally equal trees are the very same object and Expr's identity equality is enough
+// for the key. Every REPL line is line 1, so the line it keys operators by does not split them.
+class ResultCache {
+    static final int DEFAULT_CAPACITY = 256;
+
+    // The factory's tables are only dropped with the trees they built, this bounds them in between
+    private static final int NODES_PER_ENTRY = 64;
+
+    // A value, or the error evaluating the line raised
+    record Result(Object value, RuntimeError error) {
+    }
+
+    private final int capacity;
+    private final Map<String, Result> bySource;
+    private final Map<Expr, Result> byTree;
+    private HashConsingFactory factory = new HashConsingFactory();
+
+    ResultCache(int capacity) {
+        this.capacity = capacity;
+        this.bySource = lru(capacity);
+        this.byTree = lru(capacity);
+    }
+
+    private static <K> Map<K, Result> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Result> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // null on a miss
+    Result get(String source) {
+        return bySource.get(source);
+    }
+
+    // null on a miss. The tree must come from factory(), or it never hits.
+    Result get(Expr tree) {
+        return byTree.get(tree);
+    }
+
+    void put(String source, Expr tree, Result result) {
+        bySource.put(source, result);
+        byTree.put(tree, result);
+    }
+
+    // For parsing the lines looked up by tree. A fresh one once the old one holds too many nodes, the trees it
+    // built cannot hit again so they go too.
+    ExprFactory factory() {
+        if (factory.distinct() > capacity * NODES_PER_ENTRY) {
+            factory = new HashConsingFactory();
+            byTree.clear();
+        }
+        return factory;
+    }
+}
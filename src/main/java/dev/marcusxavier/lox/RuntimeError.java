@@ -0,0 +1,13 @@
+package dev.marcusxavier.lox;
+
+class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    // Errors are never serialized, Token is not Serializable
+    final transient Token token;
+
+    RuntimeError(Token token, String message) {
+        super(message);
+        this.token = token;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.marcusxavier.lox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+// AstPrinter for SealedExpr trees: same output and the same explicit stack, but nodes are taken apart with a
+// pattern matching switch instead of a Visitor. The switch has no default, so a new record type in GenerateAst
+// is a compile error here until it is handled.
+class SealedAstPrinter {
+    // SealedExpr nodes still to print and String pieces still to write, the next one on top
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+    String print(SealedExpr expr) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expr, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    void print(SealedExpr expr, Appendable out) throws IOException {
+        pending.clear();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof String text) {
+                out.append(text);
+                continue;
+            }
+
+            switch ((SealedExpr) next) {
+                case SealedExpr.Binary(SealedExpr left, Token operator, SealedExpr right) ->
+                        parenthesize(operator.lexeme, left, right);
+                case SealedExpr.Error(Token token, List<SealedExpr> parts) -> {
+                    if (parts.isEmpty()) {
+                        pending.push("<error>");
+                    } else {
+                        parenthesize("<error>", parts.toArray(new SealedExpr[0]));
+                    }
+                }
+                case SealedExpr.Grouping(SealedExpr expression) -> parenthesize(null, expression);
+                case SealedExpr.Literal(Object value) -> pending.push(value == null ? "nil" : value.toString());
+                case SealedExpr.Unary(Token operator, SealedExpr right) -> parenthesize(operator.lexeme, right);
+            }
+        }
+    }
+
+    // Pushed last to first, so they come off the stack in print order
+    private void parenthesize(String name, SealedExpr... exprs) {
+        if (name != null) pending.push(")");
+        for (int i = exprs.length - 1; i >= 0; i--) {
+            pending.push(exprs[i]);
+            pending.push(" ");
+        }
+        if (name != null) pending.push("(" + name);
+    }
+}
@@ -0,0 +1,21 @@
+package dev.marcusxavier.lox;
+
+import java.util.List;
+
+// Generated by tool.GenerateAst --records, do not edit
+sealed interface SealedExpr {
+    record Binary(SealedExpr left, Token operator, SealedExpr right) implements SealedExpr {
+    }
+
+    record Error(Token token, List<SealedExpr> parts) implements SealedExpr {
+    }
+
+    record Grouping(SealedExpr expression) implements SealedExpr {
+    }
+
+    record Literal(Object value) implements SealedExpr {
+    }
+
+    record Unary(Token operator, SealedExpr right) implements SealedExpr {
+    }
+}
@@ -4,17 +4,44 @@ public class Token {
     final TokenType type;
     final String lexeme;
     final Object literal;
-    // could add column and length too, to get better syntax error messages
-    // Or add offset, as suggested here https://craftinginterpreters.com/scanning.html#location-information 
-    final int locationLine;
+    // Relative to origin when there is one, see Origin
+    private final int locationLine;
+    // 1-based, 0 when unknown (tokens built by hand)
+    private final int locationColumn;
+    private final Origin origin;
 
     public Token(TokenType type, String lexeme, Object literal, int locationLine) {
+        this(type, lexeme, literal, locationLine, 0);
+    }
+
+    public Token(TokenType type, String lexeme, Object literal, int locationLine, int locationColumn) {
+        this(type, lexeme, literal, locationLine, locationColumn, null);
+    }
+
+    private Token(TokenType type, String lexeme, Object literal, int locationLine, int locationColumn,
+                  Origin origin) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.locationLine = locationLine;
+        this.locationColumn = locationColumn;
+        this.origin = origin;
+    }
+
+    // This token with its position kept relative to origin, which is at originLine and originColumn now
+    Token relativeTo(Origin origin, int originLine, int originColumn) {
+        return new Token(type, lexeme, literal, Origin.relativeLine(locationLine, originLine),
+                Origin.relativeColumn(locationLine, locationColumn, originLine, originColumn), origin);
     }
-  
+
+    int line() {
+        return origin == null ? locationLine : origin.line() + locationLine;
+    }
+
+    int column() {
+        return origin == null || locationLine != 0 ? locationColumn : origin.column() + locationColumn;
+    }
+
     public String toString() {
         return String.format("%s %s %s", type, lexeme, literal);
     }
@@ -0,0 +1,155 @@
+package dev.marcusxavier.lox;
+
+import java.util.Arrays;
+
+// Runs a Chunk on an operand stack, with the same semantics and error messages as the Interpreter.
+//
+// The stack is three parallel arrays: numbers stay unboxed in numbers[] and the other values go in values[],
+// with numeric[] telling which of the two a slot uses. Pushing a number never stores a reference, so the numeric
+// paths do not pay for GC write barriers.
+class VM {
+    private double[] numbers = new double[16];
+    private Object[] values = new Object[16];
+    private boolean[] numeric = new boolean[16];
+
+    Object run(Chunk chunk) {
+        if (chunk.maxStack > numbers.length) {
+            numbers = new double[chunk.maxStack];
+            values = new Object[chunk.maxStack];
+            numeric = new boolean[chunk.maxStack];
+        }
+
+        // Locals, so the loop does not go through fields
+        final byte[] code = chunk.code;
+        final double[] constantNumbers = chunk.numbers;
+        final Object[] constants = chunk.constants;
+        final double[] numbers = this.numbers;
+        final Object[] values = this.values;
+        final boolean[] numeric = this.numeric;
+        int ip = 0;
+        int sp = 0;
+
+        while (true) {
+            byte op = code[ip++];
+            switch (op) {
+                case Chunk.OP_NUMBER -> {
+                    numbers[sp] = constantNumbers[code[ip++] & 0xff];
+                    numeric[sp++] = true;
+                }
+                case Chunk.OP_NUMBER_LONG -> {
+                    numbers[sp] = constantNumbers[readLong(code, ip)];
+                    numeric[sp++] = true;
+                    ip += 3;
+                }
+                case Chunk.OP_CONSTANT -> push(sp++, constants[code[ip++] & 0xff]);
+                case Chunk.OP_CONSTANT_LONG -> {
+                    push(sp++, constants[readLong(code, ip)]);
+                    ip += 3;
+                }
+                case Chunk.OP_NIL -> push(sp++, null);
+                case Chunk.OP_TRUE -> push(sp++, true);
+                case Chunk.OP_FALSE -> push(sp++, false);
+                case Chunk.OP_NEGATE -> {
+                    if (!numeric[sp - 1]) {
+                        throw new RuntimeError(chunk.tokens[ip - 1], "Operand must be a number.");
+                    }
+                    numbers[sp - 1] = -numbers[sp - 1];
+                }
+                case Chunk.OP_NOT -> push(sp - 1, !(numeric[sp - 1] || isTruthy(values[sp - 1])));
+                case Chunk.OP_ADD -> {
+                    sp--;
+                    if (numeric[sp - 1] && numeric[sp]) {
+                        numbers[sp - 1] += numbers[sp];
+                    } else if (!numeric[sp - 1] && !numeric[sp]
+                            && values[sp - 1] instanceof String left && values[sp] instanceof String right) {
+                        values[sp - 1] = left + right;
+                    } else {
+                        throw new RuntimeError(chunk.tokens[ip - 1], "Operands must be two numbers or two strings.");
+                    }
+                }
+                case Chunk.OP_SUBTRACT -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    numbers[sp - 1] -= numbers[sp];
+                }
+                case Chunk.OP_MULTIPLY -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    numbers[sp - 1] *= numbers[sp];
+                }
+                case Chunk.OP_DIVIDE -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    numbers[sp - 1] /= numbers[sp];
+                }
+                case Chunk.OP_GREATER -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    push(sp - 1, numbers[sp - 1] > numbers[sp]);
+                }
+                case Chunk.OP_GREATER_EQUAL -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    push(sp - 1, numbers[sp - 1] >= numbers[sp]);
+                }
+                case Chunk.OP_LESS -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    push(sp - 1, numbers[sp - 1] < numbers[sp]);
+                }
+                case Chunk.OP_LESS_EQUAL -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip - 1, sp);
+                    push(sp - 1, numbers[sp - 1] <= numbers[sp]);
+                }
+                case Chunk.OP_EQUAL -> {
+                    sp--;
+                    push(sp - 1, isEqual(sp - 1, sp));
+                }
+                case Chunk.OP_NOT_EQUAL -> {
+                    sp--;
+                    push(sp - 1, !isEqual(sp - 1, sp));
+                }
+                case Chunk.OP_RETURN -> {
+                    Object result = numeric[sp - 1] ? (Object) numbers[sp - 1] : values[sp - 1];
+                    // Do not keep the last run's strings alive
+                    Arrays.fill(values, 0, sp, null);
+                    return result;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + op);
+            }
+        }
+    }
+
+    private static int readLong(byte[] code, int ip) {
+        return (code[ip] & 0xff) << 16 | (code[ip + 1] & 0xff) << 8 | (code[ip + 2] & 0xff);
+    }
+
+    private void push(int slot, Object value) {
+        values[slot] = value;
+        numeric[slot] = false;
+    }
+
+    private void checkNumberOperands(Chunk chunk, int offset, int top) {
+        if (numeric[top - 1] && numeric[top]) return;
+        throw new RuntimeError(chunk.tokens[offset], "Operands must be numbers.");
+    }
+
+    // Same as Double.equals for two numbers: NaN equals itself and 0.0 does not equal -0.0
+    private boolean isEqual(int a, int b) {
+        if (numeric[a] || numeric[b]) {
+            return numeric[a] && numeric[b] && Double.compare(numbers[a], numbers[b]) == 0;
+        }
+
+        if (values[a] == null && values[b] == null) return true;
+        if (values[a] == null) return false;
+
+        return values[a].equals(values[b]);
+    }
+
+    private boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+}
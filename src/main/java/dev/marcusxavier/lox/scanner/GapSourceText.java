@@ -0,0 +1,204 @@
+package dev.marcusxavier.lox.scanner;
+
+import java.util.Arrays;
+
+// A source that is edited in place, see TokenGapBuffer. The chars are kept with a gap where the last edit was, so
+// an edit only moves the text between it and the one before.
+//
+// The offsets where lines start are kept the same way, with a gap at the same place, and the ones after the gap
+// are stored as distances from the end of the text. An edit leaves those as they are: the lines after it move with
+// the end of the text, and their numbers follow from how many lines are before them.
+final class GapSourceText extends SourceText {
+    private static final int MIN_GAP = 64;
+
+    private char[] chars;
+    private int gapStart;
+    private int gapEnd;
+
+    // Offsets where lines 2 and on start, one past each '\n'
+    private int[] lineStarts = new int[16];
+    private int lineGapStart = 0;
+    private int lineGapEnd = lineStarts.length;
+
+    GapSourceText(String text) {
+        chars = new char[text.length() + MIN_GAP];
+        text.getChars(0, text.length(), chars, 0);
+        gapStart = text.length();
+        gapEnd = chars.length;
+
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) addLineStart(i + 1);
+    }
+
+    // Replaces [start, end) with replacement
+    void replace(int start, int end, String replacement) {
+        // Line starts after the edit go behind the gap while the length they are stored against is still the old
+        // one, and the ones of the newlines in [start, end) are dropped with the text
+        moveLineGap(linesUpTo(start));
+        while (lineGapEnd < lineStarts.length && length() - lineStarts[lineGapEnd] <= end) lineGapEnd++;
+
+        moveGap(start);
+        gapEnd += end - start;
+        if (gapEnd - gapStart < replacement.length()) grow(replacement.length());
+        replacement.getChars(0, replacement.length(), chars, gapStart);
+        gapStart += replacement.length();
+
+        for (int i = replacement.indexOf('\n'); i >= 0; i = replacement.indexOf('\n', i + 1)) {
+            addLineStart(start + i + 1);
+        }
+    }
+
+    // 1-based line containing offset
+    int line(int offset) {
+        return linesUpTo(offset) + 1;
+    }
+
+    // 1-based column of offset inside its line
+    int column(int offset) {
+        int lines = linesUpTo(offset);
+        return offset - (lines == 0 ? 0 : lineStart(lines - 1)) + 1;
+    }
+
+    @Override
+    public int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    char charAt(int offset) {
+        return offset < gapStart ? chars[offset] : chars[offset + gapEnd - gapStart];
+    }
+
+    @Override
+    public String text(int start, int end) {
+        int gap = gapEnd - gapStart;
+        if (end <= gapStart) return new String(chars, start, end - start);
+        if (start >= gapStart) return new String(chars, start + gap, end - start);
+
+        char[] text = new char[end - start];
+        System.arraycopy(chars, start, text, 0, gapStart - start);
+        System.arraycopy(chars, gapEnd, text, gapStart - start, end - gapStart);
+        return new String(text);
+    }
+
+    @Override
+    int indexOf(char c, int from) {
+        return indexOf(c, from, length());
+    }
+
+    // The parts before and after the gap are searched as they are, without a check of the gap per char
+    @Override
+    int indexOf(char c, int from, int to) {
+        int i = Math.max(from, 0);
+        for (int before = Math.min(to, gapStart); i < before; i++) {
+            if (chars[i] == c) return i;
+        }
+
+        int gap = gapEnd - gapStart;
+        for (; i < to; i++) {
+            if (chars[i + gap] == c) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    int lastIndexOf(char c, int from) {
+        for (int i = Math.min(from, length() - 1); i >= 0; i--) {
+            if (charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    int indexOfCommentMark(int from) {
+        for (int i = from; i < length(); i++) {
+            char c = charAt(i);
+            if (c == '*' || c == '/') return i;
+        }
+        return -1;
+    }
+
+    // From the line starts, without going over the text
+    @Override
+    int countLines(int from, int to) {
+        return linesUpTo(to) - linesUpTo(from);
+    }
+
+    @Override
+    int skipBlanks(int from) {
+        int i = from;
+        while (i < length()) {
+            char c = charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    boolean isContinuation(int offset) {
+        return false;
+    }
+
+    // Number of line starts at or before offset, a binary search over both sides of the gap
+    private int linesUpTo(int offset) {
+        int low = 0;
+        int high = lineStarts.length - (lineGapEnd - lineGapStart);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lineStart(middle) <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Offset of the index-th line start, where line index + 2 starts
+    private int lineStart(int index) {
+        if (index < lineGapStart) return lineStarts[index];
+        return length() - lineStarts[index + lineGapEnd - lineGapStart];
+    }
+
+    private void addLineStart(int offset) {
+        if (lineGapStart == lineGapEnd) {
+            int[] grown = new int[lineStarts.length * 2];
+            int after = lineStarts.length - lineGapEnd;
+            System.arraycopy(lineStarts, 0, grown, 0, lineGapStart);
+            System.arraycopy(lineStarts, lineGapEnd, grown, grown.length - after, after);
+            lineGapEnd = grown.length - after;
+            lineStarts = grown;
+        }
+        lineStarts[lineGapStart++] = offset;
+    }
+
+    // Moves the line gap to after the first count line starts, converting the ones that cross it
+    private void moveLineGap(int count) {
+        int length = length();
+        while (lineGapStart > count) lineStarts[--lineGapEnd] = length - lineStarts[--lineGapStart];
+        while (lineGapStart < count) lineStarts[lineGapStart++] = length - lineStarts[lineGapEnd++];
+    }
+
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int count = gapStart - offset;
+            System.arraycopy(chars, offset, chars, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (offset > gapStart) {
+            int count = offset - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    // Room for at least needed chars in the gap
+    private void grow(int needed) {
+        int after = chars.length - gapEnd;
+        char[] grown = Arrays.copyOf(chars, Math.max(chars.length * 2, gapStart + needed + after + MIN_GAP));
+        System.arraycopy(chars, gapEnd, grown, grown.length - after, after);
+        gapEnd = grown.length - after;
+        chars = grown;
+    }
+}
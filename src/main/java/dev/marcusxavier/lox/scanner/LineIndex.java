@@ -0,0 +1,39 @@
+package dev.marcusxavier.lox.scanner;
+
+import java.util.Arrays;
+
+// Offsets where each line starts, so line and column can be recovered from a token offset with a binary search
+// instead of being stored on every token.
+final class LineIndex {
+    private final int[] lineStarts;
+    private final int count;
+
+    private LineIndex(int[] lineStarts, int count) {
+        this.lineStarts = lineStarts;
+        this.count = count;
+    }
+
+    static LineIndex of(SourceText source) {
+        int[] starts = new int[16];
+        int count = 1;
+
+        for (int i = source.indexOf('\n', 0); i >= 0; i = source.indexOf('\n', i + 1)) {
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = i + 1;
+        }
+
+        return new LineIndex(starts, count);
+    }
+
+    // 1-based line containing offset
+    int line(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, count, offset);
+        // Not a line start, binarySearch returns -(insertion point) - 1, and the line is the one before it
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // 1-based column of offset inside its line
+    int column(int offset) {
+        return offset - lineStarts[line(offset) - 1] + 1;
+    }
+}
@@ -0,0 +1,203 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.ErrorReporter;
+import dev.marcusxavier.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Scans a large source as independent chunks on a ForkJoinPool and stitches the results into one TokenBuffer.
+//
+// Chunks are split right after a newline, but that can still be inside a string or a block comment. Each chunk is
+// scanned speculatively as if it started in plain code, and a second time as if it started inside a string (from
+// its first quote on), since a wrong guess about string parity never heals by itself. While stitching, the real scan
+// position is known: when it is where a speculation started, that speculation was right and is kept as is.
+// Otherwise the chunk is rescanned from the real position until a token lands on a token start of a speculation,
+// from there both scans are in the same state and the rest of the speculative tokens is reused. Block comments need
+// no speculation of their own, a comment body scanned as code resynchronizes at its closing */.
+public final class ParallelScanner {
+    // Smaller chunks cost more in stitching than they gain in parallelism
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private final SourceText source;
+    private final ForkJoinPool pool;
+    private final ErrorReporter reporter;
+    private LineIndex lines;
+
+    public ParallelScanner(SourceText source, ForkJoinPool pool, ErrorReporter reporter) {
+        this.source = source;
+        this.pool = pool;
+        this.reporter = reporter;
+    }
+
+    public TokenBuffer scanTokens() {
+        int[] bounds = split();
+        if (bounds.length == 2) {
+            return new Scanner(source, 0, source.length(), 1, reporter).scanTokens();
+        }
+
+        List<Chunk> chunks = pool.invoke(new RecursiveTask<>() {
+            @Override
+            protected List<Chunk> compute() {
+                List<ChunkTask> tasks = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    tasks.add(new ChunkTask(source, bounds[i], bounds[i + 1]));
+                }
+
+                List<Chunk> chunks = new ArrayList<>();
+                for (ChunkTask task : ForkJoinTask.invokeAll(tasks)) {
+                    chunks.add(task.join());
+                }
+                return chunks;
+            }
+        });
+
+        return stitch(chunks);
+    }
+
+    // Chunk boundaries, always starting at 0 and ending at the source length
+    private int[] split() {
+        int length = source.length();
+        int count = Math.max(1, Math.min(pool.getParallelism() * 4, length / MIN_CHUNK_SIZE));
+        int size = length / count;
+
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (int i = 1; i < count; i++) {
+            int newline = source.indexOf('\n', Math.max(i * size, bounds.get(bounds.size() - 1)));
+            if (newline < 0) break;
+            bounds.add(newline + 1);
+        }
+        bounds.add(length);
+
+        return bounds.stream().distinct().mapToInt(Integer::intValue).toArray();
+    }
+
+    private TokenBuffer stitch(List<Chunk> chunks) {
+        TokenBuffer tokens = new TokenBuffer(source);
+        // The real scanner state is plain code at position, every token before it is already in tokens
+        int position = 0;
+
+        for (Chunk chunk : chunks) {
+            // A string or comment of an earlier chunk may have run over this whole chunk
+            if (position >= chunk.to) continue;
+
+            Speculation exact = chunk.startingAt(position);
+            if (exact != null) {
+                tokens.append(exact.tokens, 0);
+                if (!exact.errors.isEmpty()) exact.errors.replay(reporter, lines().line(exact.from) - 1);
+                position = exact.stop;
+            } else {
+                position = resync(chunk, position, tokens);
+            }
+        }
+
+        tokens.add(TokenType.EOF, source.length(), 0);
+        if (lines != null) tokens.useLines(lines);
+        return tokens;
+    }
+
+    // Rescans the chunk from the real position and returns where the real scan stopped
+    private int resync(Chunk chunk, int position, TokenBuffer tokens) {
+        Scanner scanner = new Scanner(source, position, chunk.to, lines().line(position), reporter);
+
+        while (scanner.nextToken() != TokenType.EOF) {
+            for (Speculation speculation : chunk.speculations) {
+                // Errors of a speculation are not positioned precisely enough to be filtered, never reuse those
+                if (!speculation.errors.isEmpty()) continue;
+
+                int reuse = speculation.tokens.indexOfStart(scanner.tokenStart());
+                if (reuse >= 0) {
+                    tokens.append(speculation.tokens, reuse);
+                    return speculation.stop;
+                }
+            }
+
+            if (scanner.tokenType() == TokenType.NUMBER) {
+                tokens.addNumber(scanner.tokenStart(), scanner.tokenLength(), scanner.tokenValue());
+            } else {
+                tokens.add(scanner.tokenType(), scanner.tokenStart(), scanner.tokenLength());
+            }
+        }
+
+        return scanner.position();
+    }
+
+    private LineIndex lines() {
+        if (lines == null) lines = LineIndex.of(source);
+        return lines;
+    }
+
+    private record Chunk(int from, int to, List<Speculation> speculations) {
+        Speculation startingAt(int position) {
+            for (Speculation speculation : speculations) {
+                if (speculation.from == position) return speculation;
+            }
+            return null;
+        }
+    }
+
+    private record Speculation(int from, TokenBuffer tokens, int stop, BufferedErrors errors) {
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized, ForkJoinTask is Serializable only for historical reasons
+        private final transient SourceText source;
+        private final int from;
+        private final int to;
+
+        ChunkTask(SourceText source, int from, int to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Chunk compute() {
+            List<Speculation> speculations = new ArrayList<>();
+            speculations.add(speculate(from));
+
+            int quote = source.indexOf('"', from, to);
+            if (quote >= 0 && quote + 1 < to) {
+                speculations.add(speculate(quote + 1));
+            }
+
+            return new Chunk(from, to, speculations);
+        }
+
+        private Speculation speculate(int start) {
+            BufferedErrors errors = new BufferedErrors();
+            // Lines are counted from the speculation start and shifted when the errors are replayed
+            Scanner scanner = new Scanner(source, start, to, 1, errors);
+            TokenBuffer tokens = new TokenBuffer(source);
+            scanner.scanInto(tokens);
+            return new Speculation(start, tokens, scanner.position(), errors);
+        }
+    }
+
+    private static final class BufferedErrors implements ErrorReporter {
+        private final List<Integer> lines = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void error(int line, String message) {
+            lines.add(line);
+            messages.add(message);
+        }
+
+        boolean isEmpty() {
+            return lines.isEmpty();
+        }
+
+        void replay(ErrorReporter reporter, int lineOffset) {
+            for (int i = 0; i < lines.size(); i++) {
+                reporter.error(lines.get(i) + lineOffset, messages.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.ErrorReporter;
+import dev.marcusxavier.lox.TokenType;
+
+// Re-scans only the part of an edited source that the edit can have changed, replacing its tokens in place.
+//
+// Scanning restarts at the end of the last token that the edit cannot have touched (the scanner looks up to two
+// chars ahead, as in "12" + ".5"), and stops as soon as a new token starts where an old token starts in the
+// unchanged text after the edit. From that point both scans are in plain code over the same text, so the remaining
+// old tokens stay as they are: the gap of TokenGapBuffer is at the edit, and their starts are kept from the end of
+// the source. Nothing past the last re-scanned token is touched.
+public final class Relexer {
+    // tokens [0, prefix) are the old tokens with the same index, tokens from suffixStart on are the old tokens at
+    // index - indexShift
+    public record Result(int prefix, int suffixStart, int indexShift) {
+    }
+
+    private Relexer() {
+    }
+
+    // Replaces [start, end) of the source of tokens with replacement, and its tokens with the ones of the new text
+    public static Result relex(TokenGapBuffer tokens, int start, int end, String replacement, ErrorReporter reporter) {
+        GapSourceText source = tokens.source();
+        int prefix = tokens.firstEndingAtOrAfter(start - 1);
+        int restart = prefix == 0 ? 0 : tokens.start(prefix - 1) + tokens.length(prefix - 1);
+        int oldSize = tokens.size();
+
+        // Before the text changes, the starts that cross the gap are converted against the old length
+        tokens.moveGap(prefix);
+        source.replace(start, end, replacement);
+        int newEnd = start + replacement.length();
+
+        Scanner scanner = new Scanner(source, restart, source.length(), source.line(restart), reporter);
+        while (true) {
+            TokenType type = scanner.nextToken();
+            int tokenStart = scanner.tokenStart();
+
+            // Old tokens that start before the new one are gone. The ones that were in the replaced text read as
+            // starting before newEnd, so they never line up with a new token.
+            while (tokens.nextStart() < tokenStart) tokens.dropNext();
+
+            // EOF always matches the old EOF, so this ends at the latest there
+            if (tokenStart >= newEnd && tokens.nextStart() == tokenStart) {
+                return new Result(prefix, tokens.beforeGap(), tokens.size() - oldSize);
+            }
+
+            tokens.insert(type, tokenStart, scanner.tokenLength(), scanner.tokenValue());
+        }
+    }
+}
@@ -1,60 +1,166 @@
 package dev.marcusxavier.lox.scanner;
 
-import dev.marcusxavier.lox.Lox;
-import dev.marcusxavier.lox.Token;
+import dev.marcusxavier.lox.Diagnostics;
+import dev.marcusxavier.lox.ErrorReporter;
 import dev.marcusxavier.lox.TokenType;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static dev.marcusxavier.lox.TokenType.*;
 
 public class Scanner {
-    private final ScannerLiterals scannerLiterals;
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
-    private int start = 0;
-    private int current = 0;
-    private int line = 1;
+    // Token for each SINGLE and OPERATOR char, and for OPERATOR chars followed by '='
+    private static final TokenType[] SINGLE_TOKENS = new TokenType[128];
+    private static final TokenType[] EQUAL_TOKENS = new TokenType[128];
+
+    static {
+        SINGLE_TOKENS['('] = LEFT_PAREN;
+        SINGLE_TOKENS[')'] = RIGHT_PAREN;
+        SINGLE_TOKENS['{'] = LEFT_BRACE;
+        SINGLE_TOKENS['}'] = RIGHT_BRACE;
+        SINGLE_TOKENS[','] = COMMA;
+        SINGLE_TOKENS['.'] = DOT;
+        SINGLE_TOKENS['-'] = MINUS;
+        SINGLE_TOKENS['+'] = PLUS;
+        SINGLE_TOKENS[';'] = SEMICOLON;
+        SINGLE_TOKENS['*'] = STAR;
+        SINGLE_TOKENS['%'] = MODULE;
+
+        SINGLE_TOKENS['!'] = BANG;
+        SINGLE_TOKENS['='] = EQUAL;
+        SINGLE_TOKENS['<'] = LESS;
+        SINGLE_TOKENS['>'] = GREATER;
+        EQUAL_TOKENS['!'] = BANG_EQUAL;
+        EQUAL_TOKENS['='] = EQUAL_EQUAL;
+        EQUAL_TOKENS['<'] = LESS_EQUAL;
+        EQUAL_TOKENS['>'] = GREATER_EQUAL;
+    }
+
+    private final SourceText source;
+    private final ErrorReporter reporter;
+    // No token starts at or after limit. A token that starts before it is still scanned to its end.
+    private final int limit;
+    private int start;
+    private int current;
+    private int line;
+    // Offset where line starts, so token columns need no search back for the last newline
+    private int lineStart;
+
+    // The last token produced by nextToken()
+    private TokenType tokenType = null;
+    private int tokenLength = 0;
+    private int tokenLine = 1;
+    private int tokenLineStart = 0;
+    private double tokenValue = 0;
 
     public Scanner(String source) {
+        this(SourceText.of(source));
+    }
+
+    // Errors go straight to stderr
+    public Scanner(SourceText source) {
+        this(source, Diagnostics.printing(System.err));
+    }
+
+    public Scanner(SourceText source, ErrorReporter reporter) {
+        this(source, 0, source.length(), 1, reporter);
+    }
+
+    // Scans only the tokens that start in [from, limit), from is assumed to be outside any token or comment.
+    // Columns are counted from from, ParallelScanner's chunks do not use them (TokenBuffer has a LineIndex).
+    Scanner(SourceText source, int from, int limit, int line, ErrorReporter reporter) {
         this.source = source;
-        this.scannerLiterals = new ScannerLiterals(this.source);
+        this.reporter = reporter;
+        this.limit = limit;
+        this.start = from;
+        this.current = from;
+        this.line = line;
+        this.lineStart = from;
+    }
+
+    public TokenBuffer scanTokens() {
+        TokenBuffer tokens = new TokenBuffer(source);
+        scanInto(tokens);
+        tokens.add(EOF, start, 0);
+        return tokens;
     }
 
-    public List<Token> scanTokens() {
-        while (!isAtEnd()) {
+    // Appends every token up to EOF (not included)
+    void scanInto(TokenBuffer tokens) {
+        while (nextToken() != EOF) {
+            if (tokenType == NUMBER) {
+                tokens.addNumber(start, tokenLength, tokenValue);
+            } else {
+                tokens.add(tokenType, start, tokenLength);
+            }
+        }
+    }
+
+    // Pull mode: scans just enough of the source to produce the next token and returns its type.
+    // Once the source is exhausted, every call returns EOF.
+    public TokenType nextToken() {
+        tokenType = null;
+
+        while (tokenType == null && current < limit && !isAtEnd()) {
             start = current;
+            tokenLine = line;
+            tokenLineStart = lineStart;
             scanToken();
         }
 
-        tokens.add(new Token(EOF, "", null, line));
-        return tokens;
+        if (tokenType == null) {
+            start = current;
+            tokenLine = line;
+            tokenLineStart = lineStart;
+            emit(EOF, 0);
+        }
+
+        return tokenType;
+    }
+
+    public TokenType tokenType() {
+        return tokenType;
+    }
+
+    public int tokenStart() {
+        return start;
+    }
+
+    public int tokenLength() {
+        return tokenLength;
+    }
+
+    // Line where the last token starts
+    public int tokenLine() {
+        return tokenLine;
+    }
+
+    // 1-based column where the last token starts
+    public int tokenColumn() {
+        return start - tokenLineStart + 1;
+    }
+
+    // Value of the last token when it is a NUMBER
+    public double tokenValue() {
+        return tokenValue;
+    }
+
+    SourceText source() {
+        return source;
+    }
+
+    // Where scanning stopped, past the last token and anything skipped after it
+    int position() {
+        return current;
     }
 
     private void scanToken() {
         char c = advance();
 
-        switch (c) {
+        switch (TypeValidator.classOf(c)) {
             // Single char lexemes
-            case '(' -> addToken(LEFT_PAREN);
-            case ')' -> addToken(RIGHT_PAREN);
-            case '{' -> addToken(LEFT_BRACE);
-            case '}' -> addToken(RIGHT_BRACE);
-            case ',' -> addToken(COMMA);
-            case '.' -> addToken(DOT);
-            case '-' -> addToken(MINUS);
-            case '+' -> addToken(PLUS);
-            case ';' -> addToken(SEMICOLON);
-            case '*' -> addToken(STAR);
-            case '%' -> addToken(MODULE);
-
+            case TypeValidator.SINGLE -> addToken(SINGLE_TOKENS[c]);
             // Double char lexemes
-            case '!' -> addToken(match('=') ? BANG_EQUAL : BANG);
-            case '=' -> addToken(match('=') ? EQUAL_EQUAL : EQUAL);
-            case '<' -> addToken(match('=') ? LESS_EQUAL : LESS);
-            case '>' -> addToken(match('=') ? GREATER_EQUAL : GREATER);
-            case '/' -> {
+            case TypeValidator.OPERATOR -> addToken(match('=') ? EQUAL_TOKENS[c] : SINGLE_TOKENS[c]);
+            case TypeValidator.SLASH -> {
                 if (match('/')) {
                     singleLineComment();
                 } else if(match('*')) {
@@ -63,71 +169,106 @@ public class Scanner {
                     addToken(SLASH);
                 }
             }
-            // Ignore whitespace
-            case ' ', '\r', '\t' -> {}
+            // Ignore whitespace, the whole run at once
+            case TypeValidator.WHITESPACE -> current = source.skipBlanks(current);
             // Count lines
-            case '\n' -> line++;
+            case TypeValidator.NEWLINE -> {
+                line++;
+                lineStart = current;
+            }
             // Treat string literals
-            case '"' -> string();
+            case TypeValidator.QUOTE -> string();
+            case TypeValidator.DIGIT -> number();
+            case TypeValidator.ALPHA -> identifier();
             default -> {
-               if (TypeValidator.isDigit(c)) {
-                   number();
-               } else if (TypeValidator.isAlpha(c)){
-                   identifier();
-               } else {
-                   Lox.error(line, "Unexpected character.");
-               }
+                reporter.error(line, "Unexpected character.");
+                // A non-ASCII character in a UTF-8 source is several bytes, report it only once
+                while (source.isContinuation(current)) current++;
             }
         }
     }
 
+    // Literals leave their type, length and value in the token fields like every other token, nothing is
+    // allocated per token but a number's text
     private void string() {
-        LiteralData data = scannerLiterals.string(start, current, line);
-        updateState(data);
+        // Jump straight to the closing quote, counting the newlines of the body in bulk
+        int close = source.indexOf('"', current);
+        int end = close < 0 ? source.length() : close;
+        newLines(source.countLines(current, end), end);
+        current = end;
+
+        if (isAtEnd()) {
+            reporter.error(line, "Unterminated string.");
+            return;
+        }
+
+        // The closing "
+        current++;
+        addToken(STRING);
     }
 
     private void number() {
-        LiteralData data = scannerLiterals.number(start, current, line);
-        updateState(data);
+        while (TypeValidator.isDigit(peek())) current++;
+
+        if (peek() == '.' && TypeValidator.isDigit(peekNext())) {
+            do {
+                current++;
+            } while (TypeValidator.isDigit(peek()));
+        }
+
+        tokenValue = Double.parseDouble(source.text(start, current));
+        addToken(NUMBER);
     }
 
     private void identifier() {
-        LiteralData data = scannerLiterals.identifier(start, current, line);
-        updateState(data);
+        while (TypeValidator.isAlphaNumeric(peek())) current++;
+
+        // Reserved words are looked up in place, without building the lexeme
+        addToken(ScannerKeywords.lookup(source, start, current - start));
     }
 
     private void singleLineComment() {
-        while (peek() != '\n' && !isAtEnd()) {
-            // Advance until comment is gone
-            advance();
-        }
+        // Jump to the end of the line, the newline itself is left for scanToken to count
+        int end = source.indexOf('\n', current);
+        current = end < 0 ? source.length() : end;
     }
     
     private void multiLineComment() {
         int nestLevel = 1;
         while(nestLevel > 0 && !isAtEnd()) {
-           if (peek() == '\n') line++;
-           // decreases the nest level when opening a multiline comment
-           else if ((peek() == '*' && peekNext() == '/')) nestLevel--;
+           // Everything up to the next '*' or '/' is comment body, only its newlines matter
+           int mark = source.indexOfCommentMark(current);
+           int end = mark < 0 ? source.length() : mark;
+           newLines(source.countLines(current, end), end);
+           current = end;
+
+           if (isAtEnd()) break;
+
+           // decreases the nest level when closing a multiline comment, both chars are consumed
+           if ((peek() == '*' && peekNext() == '/')) {
+               nestLevel--;
+               advance();
+           }
            // increases the nest level when opening a multiline comment
-           else if (peek() == '/' && peekNext() == '*')  nestLevel++;
+           else if (peek() == '/' && peekNext() == '*') {
+               nestLevel++;
+               advance();
+           }
 
            advance();
         }
 
-        if (isAtEnd()) {
-            Lox.error(line, "Unterminated comment.");
-            return;
+        if (nestLevel > 0) {
+            reporter.error(line, "Unterminated comment.");
         }
-
-        advance();
-        advance();
     }
 
-    private void updateState(LiteralData data) {
-        data.token().ifPresent(tokens::add);
-        current = data.current();
-        line = data.line();
+    // Counts newlines found in bulk, the last of them before end. lines > 0 means there is one in the text that was
+    // just skipped, so the search back from end finds it there and does not rescan the lines before.
+    private void newLines(int lines, int end) {
+        if (lines == 0) return;
+        line += lines;
+        lineStart = source.lastIndexOf('\n', end - 1) + 1;
     }
 
     private char advance() {
@@ -137,12 +278,12 @@ public class Scanner {
     }
 
     private void addToken(TokenType type) {
-        addToken(type, null);
+        emit(type, current - start);
     }
 
-    private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+    private void emit(TokenType type, int length) {
+        tokenType = type;
+        tokenLength = length;
     }
 
     private boolean match(char expected) {
@@ -2,29 +2,61 @@ package dev.marcusxavier.lox.scanner;
 
 import dev.marcusxavier.lox.TokenType;
 
-import java.util.HashMap;
-import java.util.Map;
+import static dev.marcusxavier.lox.TokenType.*;
 
+// Keywords are recognized straight from the source range with a switch on length and first char, which
+// leaves at most two candidates to compare. Nothing is allocated, unlike a substring + HashMap lookup.
 class ScannerKeywords {
-  public static final Map<String, TokenType> keywords;
+  static TokenType lookup(SourceText source, int start, int length) {
+    char first = source.charAt(start);
 
-  static {
-    keywords = new HashMap<>();
-    keywords.put("and",    TokenType.AND);
-    keywords.put("class",  TokenType.CLASS);
-    keywords.put("else",   TokenType.ELSE);
-    keywords.put("false",  TokenType.FALSE);
-    keywords.put("for",    TokenType.FOR);
-    keywords.put("fun",    TokenType.FUN);
-    keywords.put("if",     TokenType.IF);
-    keywords.put("nil",    TokenType.NIL);
-    keywords.put("or",     TokenType.OR);
-    keywords.put("print",  TokenType.PRINT);
-    keywords.put("return", TokenType.RETURN);
-    keywords.put("super",  TokenType.SUPER);
-    keywords.put("this",   TokenType.THIS);
-    keywords.put("true",   TokenType.TRUE);
-    keywords.put("var",    TokenType.VAR);
-    keywords.put("while",  TokenType.WHILE);
+    switch (length) {
+      case 2 -> {
+        if (first == 'i') return keyword(source, start, "if", IF);
+        if (first == 'o') return keyword(source, start, "or", OR);
+      }
+      case 3 -> {
+        switch (first) {
+          case 'a' -> { return keyword(source, start, "and", AND); }
+          case 'n' -> { return keyword(source, start, "nil", NIL); }
+          case 'v' -> { return keyword(source, start, "var", VAR); }
+          case 'f' -> {
+            if (source.charAt(start + 1) == 'o') return keyword(source, start, "for", FOR);
+            return keyword(source, start, "fun", FUN);
+          }
+        }
+      }
+      case 4 -> {
+        switch (first) {
+          case 'e' -> { return keyword(source, start, "else", ELSE); }
+          case 't' -> {
+            if (source.charAt(start + 1) == 'h') return keyword(source, start, "this", THIS);
+            return keyword(source, start, "true", TRUE);
+          }
+        }
+      }
+      case 5 -> {
+        switch (first) {
+          case 'c' -> { return keyword(source, start, "class", CLASS); }
+          case 'f' -> { return keyword(source, start, "false", FALSE); }
+          case 'p' -> { return keyword(source, start, "print", PRINT); }
+          case 's' -> { return keyword(source, start, "super", SUPER); }
+          case 'w' -> { return keyword(source, start, "while", WHILE); }
+        }
+      }
+      case 6 -> {
+        if (first == 'r') return keyword(source, start, "return", RETURN);
+      }
+    }
+
+    return IDENTIFIER;
+  }
+
+  private static TokenType keyword(SourceText source, int start, String keyword, TokenType type) {
+    // The first char was already checked by the switch
+    for (int i = 1; i < keyword.length(); i++) {
+      if (source.charAt(start + i) != keyword.charAt(i)) return IDENTIFIER;
+    }
+    return type;
   }
 }
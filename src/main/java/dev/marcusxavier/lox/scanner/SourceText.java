@@ -0,0 +1,58 @@
+package dev.marcusxavier.lox.scanner;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// The text the scanner runs over, either an in-memory String or the UTF-8 bytes of a memory-mapped file.
+// Offsets are in the source's own units (chars or bytes). Lox syntax is pure ASCII, so the scanner can treat
+// both the same way and only non-ASCII text inside strings and comments ever has to be decoded.
+public abstract class SourceText {
+    public static SourceText of(String text) {
+        return new StringSourceText(text);
+    }
+
+    // Maps the file instead of reading it into the heap. Limited to 2GB by MappedByteBuffer.
+    public static SourceText map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to be mapped (%s bytes)", path, size));
+            }
+
+            // The mapping stays valid after the channel is closed
+            return new Utf8SourceText(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public abstract int length();
+
+    // Code unit at offset. For UTF-8 sources this is the raw byte, which is the same char for ASCII.
+    abstract char charAt(int offset);
+
+    // Decoded text between two offsets
+    public abstract String text(int start, int end);
+
+    // The bulk operations below let the scanner jump over comments, string bodies and whitespace runs
+    // instead of stepping through them one peek()/advance() at a time.
+
+    abstract int indexOf(char c, int from);
+
+    // First c in [from, to), or -1. Stops at to instead of searching on to the end of the source.
+    abstract int indexOf(char c, int from, int to);
+
+    abstract int lastIndexOf(char c, int from);
+
+    // Next '*' or '/' at or after from, or -1. Those are the only chars that matter inside a block comment.
+    abstract int indexOfCommentMark(int from);
+
+    // Number of '\n' in [from, to)
+    abstract int countLines(int from, int to);
+
+    // First offset at or after from that is not a space, tab or carriage return
+    abstract int skipBlanks(int from);
+
+    // True when offset is in the middle of a multi-unit character, used to report a stray non-ASCII character once
+    abstract boolean isContinuation(int offset);
+}
@@ -0,0 +1,78 @@
+package dev.marcusxavier.lox.scanner;
+
+final class StringSourceText extends SourceText {
+    private final String text;
+
+    StringSourceText(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    char charAt(int offset) {
+        return text.charAt(offset);
+    }
+
+    @Override
+    public String text(int start, int end) {
+        return text.substring(start, end);
+    }
+
+    @Override
+    int indexOf(char c, int from) {
+        return text.indexOf(c, from);
+    }
+
+    @Override
+    int indexOf(char c, int from, int to) {
+        return text.indexOf(c, from, to);
+    }
+
+    @Override
+    int lastIndexOf(char c, int from) {
+        return text.lastIndexOf(c, from);
+    }
+
+    // String.indexOf is a vectorized intrinsic in HotSpot, so single char searches are delegated to it.
+    // There is no intrinsic for a set of chars, the loops below at least skip the scanner's per-char bookkeeping.
+
+    @Override
+    int indexOfCommentMark(int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '/') return i;
+        }
+        return -1;
+    }
+
+    // Not through indexOf, which would search past to for a newline that may be far away or not there at all
+    @Override
+    int countLines(int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    @Override
+    int skipBlanks(int from) {
+        int i = from;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    boolean isContinuation(int offset) {
+        // Each UTF-16 unit is reported on its own, as the scanner always did
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Token;
+import dev.marcusxavier.lox.TokenType;
+
+import java.util.Arrays;
+
+// Struct-of-arrays token list. Instead of one Token object per token (with its own lexeme copy and boxed literal),
+// every token is a slot in a few parallel primitive arrays, and lexemes, literals and locations are read back from
+// the source on demand.
+public final class TokenBuffer implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int NO_LITERAL = -1;
+
+    private final SourceText source;
+    private LineIndex lines;
+
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    // Index into numbers for NUMBER tokens. String literals are cut from the source instead.
+    private int[] literals = new int[64];
+    private int size = 0;
+
+    private double[] numbers = new double[16];
+    private int numberCount = 0;
+
+    TokenBuffer(SourceText source) {
+        this.source = source;
+    }
+
+    void add(TokenType type, int start, int length) {
+        add(type, start, length, NO_LITERAL);
+    }
+
+    void addNumber(int start, int length, double value) {
+        if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+        numbers[numberCount] = value;
+        add(TokenType.NUMBER, start, length, numberCount++);
+    }
+
+    private void add(TokenType type, int start, int length, int literal) {
+        if (size == types.length) grow();
+
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        literals[size] = literal;
+        size++;
+    }
+
+    // Appends tokens [from, other.size()) of a buffer over the same source
+    void append(TokenBuffer other, int from) {
+        int count = other.size - from;
+        if (count <= 0) return;
+
+        while (size + count > types.length) grow();
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+
+        // Number literals move to this buffer's pool, so their indexes change
+        for (int i = 0; i < count; i++) {
+            int literal = other.literals[from + i];
+            if (literal != NO_LITERAL) {
+                if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+                numbers[numberCount++] = other.numbers[literal];
+                literal = numberCount - 1;
+            }
+            literals[size + i] = literal;
+        }
+        size += count;
+    }
+
+    // Index of the token starting exactly at offset, or -1
+    int indexOfStart(int offset) {
+        int index = Arrays.binarySearch(starts, 0, size, offset);
+        return index >= 0 ? index : -1;
+    }
+
+    void useLines(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        literals = Arrays.copyOf(literals, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public String lexeme(int index) {
+        return source.text(starts[index], starts[index] + lengths[index]);
+    }
+
+    @Override
+    public Object literal(int index) {
+        return switch (type(index)) {
+            case NUMBER -> numbers[literals[index]];
+            // Without the surrounding quotes
+            case STRING -> source.text(starts[index] + 1, starts[index] + lengths[index] - 1);
+            default -> null;
+        };
+    }
+
+    @Override
+    public int line(int index) {
+        return lines().line(starts[index]);
+    }
+
+    @Override
+    public int column(int index) {
+        return lines().column(starts[index]);
+    }
+
+    // Materializes a single token, for the few places (operators, error messages) that still need one
+    @Override
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), literal(index), line(index), column(index));
+    }
+
+    private LineIndex lines() {
+        if (lines == null) lines = LineIndex.of(source);
+        return lines;
+    }
+}
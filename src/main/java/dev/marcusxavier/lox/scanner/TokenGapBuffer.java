@@ -0,0 +1,208 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.ErrorReporter;
+import dev.marcusxavier.lox.Token;
+import dev.marcusxavier.lox.TokenType;
+
+import java.util.Arrays;
+
+// The tokens of a source that is edited in place, for IncrementalFrontend: TokenBuffer's parallel arrays with a gap
+// where the last edit was, so Relexer replaces the tokens around an edit without moving the ones after it. Starts
+// after the gap are stored as distances from the end of the source, like the line starts of GapSourceText, so they
+// stay right when an edit before them changes its length.
+//
+// Every token also has a slot for whatever its user keeps with it, which moves with the token and is dropped with
+// it. IncrementalFrontend keeps the group a '(' opens there.
+public final class TokenGapBuffer implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final GapSourceText source;
+
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    // A value for every token rather than TokenBuffer's pool, which would only grow as edits replace numbers
+    private double[] numbers = new double[64];
+    private Object[] attachments = new Object[64];
+    private int gapStart = 0;
+    private int gapEnd = 64;
+
+    private TokenGapBuffer(GapSourceText source) {
+        this.source = source;
+    }
+
+    public static TokenGapBuffer scan(String text, ErrorReporter reporter) {
+        TokenGapBuffer tokens = new TokenGapBuffer(new GapSourceText(text));
+        Scanner scanner = new Scanner(tokens.source, reporter);
+
+        TokenType type;
+        do {
+            type = scanner.nextToken();
+            tokens.insert(type, scanner.tokenStart(), scanner.tokenLength(), scanner.tokenValue());
+        } while (type != TokenType.EOF);
+        return tokens;
+    }
+
+    public int size() {
+        return types.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public TokenType type(int index) {
+        return TYPES[types[slot(index)]];
+    }
+
+    public int start(int index) {
+        return index < gapStart ? starts[index] : source.length() - starts[index + gapEnd - gapStart];
+    }
+
+    public int length(int index) {
+        return lengths[slot(index)];
+    }
+
+    public String lexeme(int index) {
+        int start = start(index);
+        return source.text(start, start + length(index));
+    }
+
+    @Override
+    public Object literal(int index) {
+        return switch (type(index)) {
+            case NUMBER -> numbers[slot(index)];
+            // Without the surrounding quotes
+            case STRING -> source.text(start(index) + 1, start(index) + length(index) - 1);
+            default -> null;
+        };
+    }
+
+    @Override
+    public int line(int index) {
+        return source.line(start(index));
+    }
+
+    @Override
+    public int column(int index) {
+        return source.column(start(index));
+    }
+
+    @Override
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), literal(index), line(index), column(index));
+    }
+
+    public Object attachment(int index) {
+        return attachments[slot(index)];
+    }
+
+    public void attach(int index, Object attachment) {
+        attachments[slot(index)] = attachment;
+    }
+
+    public void clearAttachments() {
+        Arrays.fill(attachments, null);
+    }
+
+    // The whole source, copied out of the gap buffer
+    public String text() {
+        return source.text(0, source.length());
+    }
+
+    GapSourceText source() {
+        return source;
+    }
+
+    // Index of the first token ending at or after offset (size when there is none)
+    int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (start(middle) + length(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Moves the gap before token index. Starts that cross it are converted against the current length of the
+    // source, so this has to be done before the source changes.
+    void moveGap(int index) {
+        int length = source.length();
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            move(gapStart, gapEnd);
+            starts[gapEnd] = length - starts[gapEnd];
+        }
+        while (gapStart < index) {
+            move(gapEnd, gapStart);
+            starts[gapStart] = length - starts[gapStart];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    // Start of the first token after the gap, which is never past the EOF token
+    int nextStart() {
+        return source.length() - starts[gapEnd];
+    }
+
+    // Drops the first token after the gap
+    void dropNext() {
+        attachments[gapEnd] = null;
+        gapEnd++;
+    }
+
+    // Adds a token before the gap
+    void insert(TokenType type, int start, int length, double value) {
+        if (gapStart == gapEnd) grow();
+
+        types[gapStart] = (byte) type.ordinal();
+        starts[gapStart] = start;
+        lengths[gapStart] = length;
+        numbers[gapStart] = value;
+        attachments[gapStart] = null;
+        gapStart++;
+    }
+
+    // Tokens before the gap, the ones Relexer has gone through
+    int beforeGap() {
+        return gapStart;
+    }
+
+    private int slot(int index) {
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+
+    private void move(int from, int to) {
+        types[to] = types[from];
+        starts[to] = starts[from];
+        lengths[to] = lengths[from];
+        numbers[to] = numbers[from];
+        attachments[to] = attachments[from];
+        attachments[from] = null;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        int after = types.length - gapEnd;
+        int newEnd = capacity - after;
+
+        types = regap(types, Arrays.copyOf(types, capacity), after, newEnd);
+        starts = regap(starts, Arrays.copyOf(starts, capacity), after, newEnd);
+        lengths = regap(lengths, Arrays.copyOf(lengths, capacity), after, newEnd);
+        numbers = regap(numbers, Arrays.copyOf(numbers, capacity), after, newEnd);
+        Object[] grown = Arrays.copyOf(attachments, capacity);
+        Arrays.fill(grown, gapStart, newEnd, null);
+        attachments = regap(attachments, grown, after, newEnd);
+        gapEnd = newEnd;
+    }
+
+    // Moves the part after the gap to the end of grown, Object arrays included since arraycopy takes any array
+    private <T> T regap(T old, T grown, int after, int newEnd) {
+        System.arraycopy(old, gapEnd, grown, newEnd, after);
+        return grown;
+    }
+}
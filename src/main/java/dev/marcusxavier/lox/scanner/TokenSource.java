@@ -0,0 +1,18 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Token;
+import dev.marcusxavier.lox.TokenType;
+
+// What the parser needs from a token sequence, addressed by token index. TokenBuffer allows any index,
+// TokenStream only the ones still inside its lookahead window.
+public interface TokenSource {
+    TokenType type(int index);
+
+    Object literal(int index);
+
+    int line(int index);
+
+    int column(int index);
+
+    Token token(int index);
+}
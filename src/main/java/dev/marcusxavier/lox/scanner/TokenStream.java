@@ -0,0 +1,98 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Token;
+import dev.marcusxavier.lox.TokenType;
+
+// Lazy token sequence that pulls from Scanner.nextToken() as the parser moves forward. Only the last WINDOW
+// tokens are kept, so memory does not grow with the size of the source.
+public final class TokenStream implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+    // Parser looks at the current and the previous token, a power of two so a mask picks the slot
+    private static final int WINDOW = 4;
+    private static final int MASK = WINDOW - 1;
+
+    private final Scanner scanner;
+    private final SourceText source;
+
+    private final byte[] types = new byte[WINDOW];
+    private final int[] starts = new int[WINDOW];
+    private final int[] lengths = new int[WINDOW];
+    private final int[] lines = new int[WINDOW];
+    private final int[] columns = new int[WINDOW];
+    private final double[] values = new double[WINDOW];
+    private int pulled = 0;
+    // Tokens pulled so far by TokenType ordinal
+    private final int[] typeCounts = new int[TYPES.length];
+
+    public TokenStream(Scanner scanner) {
+        this.scanner = scanner;
+        this.source = scanner.source();
+    }
+
+    @Override
+    public TokenType type(int index) {
+        return TYPES[types[slot(index)]];
+    }
+
+    @Override
+    public Object literal(int index) {
+        int slot = slot(index);
+        return switch (TYPES[types[slot]]) {
+            case NUMBER -> values[slot];
+            case STRING -> source.text(starts[slot] + 1, starts[slot] + lengths[slot] - 1);
+            default -> null;
+        };
+    }
+
+    @Override
+    public int line(int index) {
+        return lines[slot(index)];
+    }
+
+    @Override
+    public int column(int index) {
+        return columns[slot(index)];
+    }
+
+    @Override
+    public Token token(int index) {
+        int slot = slot(index);
+        int start = starts[slot];
+        String lexeme = source.text(start, start + lengths[slot]);
+
+        return new Token(TYPES[types[slot]], lexeme, literal(index), lines[slot], columns[slot]);
+    }
+
+    // Tokens pulled from the scanner so far
+    public int pulled() {
+        return pulled;
+    }
+
+    public int[] typeCounts() {
+        return typeCounts;
+    }
+
+    private int slot(int index) {
+        while (pulled <= index) pull();
+
+        if (index < pulled - WINDOW) {
+            throw new IllegalStateException(String.format("Token %s already left the lookahead window", index));
+        }
+
+        return index & MASK;
+    }
+
+    private void pull() {
+        int slot = pulled & MASK;
+
+        int type = scanner.nextToken().ordinal();
+        types[slot] = (byte) type;
+        typeCounts[type]++;
+        starts[slot] = scanner.tokenStart();
+        lengths[slot] = scanner.tokenLength();
+        lines[slot] = scanner.tokenLine();
+        columns[slot] = scanner.tokenColumn();
+        values[slot] = scanner.tokenValue();
+        pulled++;
+    }
+}
@@ -1,17 +1,53 @@
 package dev.marcusxavier.lox.scanner;
 
+// Character classes come from a precomputed table over ASCII, so the scanner dispatches with one array load
+// instead of a chain of range checks. Anything outside ASCII is OTHER, Lox syntax never uses it.
 class TypeValidator {
+    static final int OTHER = 0;
+    static final int DIGIT = 1;
+    static final int ALPHA = 2;
+    static final int WHITESPACE = 3;
+    static final int NEWLINE = 4;
+    // Always a single char token: ( ) { } , . - + ; * %
+    static final int SINGLE = 5;
+    // A single char token that may be followed by '=': ! = < >
+    static final int OPERATOR = 6;
+    static final int SLASH = 7;
+    static final int QUOTE = 8;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) CLASSES[c] = DIGIT;
+        for (char c = 'a'; c <= 'z'; c++) CLASSES[c] = ALPHA;
+        for (char c = 'A'; c <= 'Z'; c++) CLASSES[c] = ALPHA;
+        CLASSES['_'] = ALPHA;
+
+        CLASSES[' '] = WHITESPACE;
+        CLASSES['\r'] = WHITESPACE;
+        CLASSES['\t'] = WHITESPACE;
+        CLASSES['\n'] = NEWLINE;
+
+        for (char c : "(){},.-+;*%".toCharArray()) CLASSES[c] = SINGLE;
+        for (char c : "!=<>".toCharArray()) CLASSES[c] = OPERATOR;
+        CLASSES['/'] = SLASH;
+        CLASSES['"'] = QUOTE;
+    }
+
+    public static int classOf(char c) {
+        return c < 128 ? CLASSES[c] : OTHER;
+    }
+
     public static boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
+        int type = classOf(c);
+        return type == ALPHA || type == DIGIT;
     }
 
     public static boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+        return classOf(c) == ALPHA;
     }
 
     public static boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+        return classOf(c) == DIGIT;
     } 
 }
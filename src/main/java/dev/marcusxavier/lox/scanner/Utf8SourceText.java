@@ -0,0 +1,133 @@
+package dev.marcusxavier.lox.scanner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+final class Utf8SourceText extends SourceText {
+    // SWAR constants, a byte repeated over the eight lanes of a long
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long SPACES = ONES * ' ';
+
+    private final ByteBuffer bytes;
+    private final int length;
+
+    Utf8SourceText(ByteBuffer bytes) {
+        // Little endian so the byte at the lowest offset is the lowest lane of a word
+        this.bytes = bytes.order(ByteOrder.LITTLE_ENDIAN);
+        this.length = bytes.limit();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    char charAt(int offset) {
+        return (char) (bytes.get(offset) & 0xff);
+    }
+
+    @Override
+    public String text(int start, int end) {
+        byte[] slice = new byte[end - start];
+        bytes.get(start, slice);
+        return new String(slice, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    int indexOf(char c, int from) {
+        return indexOf(c, from, length);
+    }
+
+    @Override
+    int indexOf(char c, int from, int to) {
+        int i = Math.max(from, 0);
+
+        // Only words that end by to, the bytes of a last partial word one at a time
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long found = matches(bytes.getLong(i), c);
+            if (found != 0) return i + firstLane(found);
+        }
+
+        for (; i < to; i++) {
+            if (bytes.get(i) == (byte) c) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    int lastIndexOf(char c, int from) {
+        for (int i = Math.min(from, length - 1); i >= 0; i--) {
+            if (bytes.get(i) == (byte) c) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    int indexOfCommentMark(int from) {
+        int i = from;
+
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            long word = bytes.getLong(i);
+            long found = matches(word, '*') | matches(word, '/');
+            if (found != 0) return i + firstLane(found);
+        }
+
+        for (; i < length; i++) {
+            byte b = bytes.get(i);
+            if (b == '*' || b == '/') return i;
+        }
+        return -1;
+    }
+
+    @Override
+    int countLines(int from, int to) {
+        int lines = 0;
+        int i = from;
+
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            lines += Long.bitCount(matches(bytes.getLong(i), '\n'));
+        }
+
+        for (; i < to; i++) {
+            if (bytes.get(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    @Override
+    int skipBlanks(int from) {
+        int i = from;
+
+        // Indentation is mostly runs of spaces, take them eight at a time
+        while (i + Long.BYTES <= length && bytes.getLong(i) == SPACES) {
+            i += Long.BYTES;
+        }
+
+        while (i < length) {
+            byte b = bytes.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    boolean isContinuation(int offset) {
+        return offset < length && (bytes.get(offset) & 0xC0) == 0x80;
+    }
+
+    // Sets the high bit of every lane of word equal to c, and only those (no false positives from borrows,
+    // so the result can be counted and not only searched)
+    private static long matches(long word, char c) {
+        long v = word ^ (ONES * c);
+        long t = (v & LOW_BITS) + LOW_BITS;
+        return ~(t | v | LOW_BITS);
+    }
+
+    private static int firstLane(long found) {
+        return Long.numberOfTrailingZeros(found) >>> 3;
+    }
+}
@@ -7,19 +7,29 @@ import java.util.Arrays;
 import java.util.List;
 
 public class GenerateAst {
+    private static final List<String> EXPR_TYPES = Arrays.asList(
+            "Binary   : Expr left, Token operator, Expr right",
+            // Stands for what the parser skipped after a syntax error, so the rest of the tree can still be built.
+            // parts are what it did parse around that, when the error was not in place of an operand.
+            "Error    : Token token, List<Expr> parts",
+            "Grouping : Expr expression",
+            "Literal  : Object value",
+            "Unary    : Token operator, Expr right"
+    );
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.err.println("Usage: generate_ast <output directory>");
+        boolean records = args.length == 2 && args[0].equals("--records");
+        if (args.length != 1 && !records) {
+            System.err.println("Usage: generate_ast [--records] <output directory>");
             System.exit(64);
         }
 
-        String outputDir = args[0];
-        defineAst(outputDir, "Expr", Arrays.asList(
-                "Binary   : Expr left, Token operator, Expr right",
-                "Grouping : Expr expression",
-                "Literal  : Object value",
-                "Unary    : Token operator, Expr right"
-        ));
+        String outputDir = args[args.length - 1];
+        if (records) {
+            defineRecords(outputDir, "SealedExpr", "Expr", EXPR_TYPES);
+        } else {
+            defineAst(outputDir, "Expr", EXPR_TYPES);
+        }
     }
 
     private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
@@ -45,11 +55,53 @@ public class GenerateAst {
         // The base accept() method.
         writer.println();
         writer.println("\tabstract <R> R accept(Visitor<R> visitor);");
+
+        // Anything stored in terms of these node types (like the .loxc parse cache) checks this first
+        writer.println();
+        writer.println("\t// Changes whenever the node types change, so data saved with other node types can be "
+                + "told apart");
+        writer.println("\tstatic final int SCHEMA = " + schema(types) + ";");
         // END SUBCLASS LOOP
         writer.println("}");
         writer.close();
     }
 
+    // The same node types as a sealed interface with one record per type, for passes that dispatch with a switch
+    // over the records instead of going through a Visitor. The node type in the definitions (nodeName) becomes the
+    // interface in the field types, type arguments included.
+    private static void defineRecords(String outputDir, String baseName, String nodeName, List<String> types)
+            throws IOException {
+        String path = outputDir + "/" + baseName + ".java";
+        PrintWriter writer = new PrintWriter(path, StandardCharsets.UTF_8);
+
+        writer.println("package dev.marcusxavier.lox;");
+        writer.println();
+        writer.println("import java.util.List;");
+        writer.println();
+        writer.println("// Generated by tool.GenerateAst --records, do not edit");
+        writer.println("sealed interface " + baseName + " {");
+
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            List<String> fields = Arrays.stream(type.split(":")[1].trim().split(", "))
+                    .map(field -> field.replaceFirst("\\b" + nodeName + "\\b", baseName))
+                    .toList();
+
+            writer.println(String.format("    record %s(%s) implements %s {", className, String.join(", ", fields),
+                    baseName));
+            writer.println("    }");
+            if (!type.equals(types.get(types.size() - 1))) writer.println();
+        }
+
+        writer.println("}");
+        writer.close();
+    }
+
+    // Hash of the type definitions, whitespace aside
+    private static int schema(List<String> types) {
+        return String.join("\n", types.stream().map(type -> type.replaceAll("\\s+", " ")).toList()).hashCode();
+    }
+
     // HACK: HERE, THE VISITOR PATTERN IS USED TO INJECT BEHAVIOUR ON OUR MULTIPLE TYPE CLASSES. THIS ALLOWS US TO SOMETIMES INJECT PARSER CODE ON IT
     // AND SOMETIMES INJECT INTERPRETER CODE ON IT. EACH CLASS WILL BE A NODE ON OUR SYNTAX TREE. SO WE ARE INJECTING BEHAVIOUR ON OUR NODES.
     // NOT ONLY BEHAVIOUR, BUT TYPED BEHAVIOUR THAT CAN KNOWS HOW TO WORK WITH A SPECIFIC CLASS, HOW TO ACCESS ITS ATTRIBUTES, ETC.
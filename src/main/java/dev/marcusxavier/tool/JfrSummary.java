@@ -0,0 +1,84 @@
+package dev.marcusxavier.tool;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reads a recording made with jlox --jfr (or any recording with the dev.marcusxavier.lox events) and prints the
+// latency of each phase: count, percentiles and a histogram with one power of two microseconds per row.
+public class JfrSummary {
+    private static final String PREFIX = "dev.marcusxavier.lox.";
+    private static final int BAR_WIDTH = 40;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java -cp target/Lox-1.0-SNAPSHOT-jar-with-dependencies.jar "
+                    + "dev.marcusxavier.tool.JfrSummary <recording.jfr>");
+            System.exit(64);
+        }
+
+        // Durations in nanoseconds, by phase
+        Map<String, List<Long>> phases = new TreeMap<>();
+        Map<String, Long> tokens = new TreeMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(Paths.get(args[0]))) {
+            String name = event.getEventType().getName();
+            if (!name.startsWith(PREFIX)) continue;
+
+            String phase = name.substring(PREFIX.length());
+            phases.computeIfAbsent(phase, key -> new ArrayList<>()).add(event.getDuration().toNanos());
+            tokens.merge(phase, (long) event.getInt("tokens"), Long::sum);
+        }
+
+        if (phases.isEmpty()) {
+            System.out.println("No Lox events in " + args[0]);
+            return;
+        }
+
+        for (Map.Entry<String, List<Long>> entry : phases.entrySet()) {
+            print(entry.getKey(), entry.getValue(), tokens.get(entry.getKey()));
+        }
+    }
+
+    private static void print(String phase, List<Long> durations, long tokens) {
+        long[] sorted = durations.stream().mapToLong(Long::longValue).sorted().toArray();
+        long total = Arrays.stream(sorted).sum();
+
+        System.out.printf("%s: %d events, %.3f ms total, %d tokens%n", phase, sorted.length, total / 1e6, tokens);
+        System.out.printf("  p50 %s  p90 %s  p99 %s  max %s%n", micros(percentile(sorted, 50)),
+                micros(percentile(sorted, 90)), micros(percentile(sorted, 99)), micros(sorted[sorted.length - 1]));
+
+        // Row b counts durations in [2^(b-1), 2^b) microseconds, row 0 the ones under 1 us
+        long[] buckets = new long[64];
+        int last = 0;
+        for (long duration : sorted) {
+            int bucket = 64 - Long.numberOfLeadingZeros(duration / 1000);
+            buckets[bucket]++;
+            last = Math.max(last, bucket);
+        }
+
+        long most = Arrays.stream(buckets).max().orElse(1);
+        int first = 64 - Long.numberOfLeadingZeros(sorted[0] / 1000);
+        for (int bucket = first; bucket <= last; bucket++) {
+            String bar = "#".repeat((int) Math.ceil((double) buckets[bucket] * BAR_WIDTH / most));
+            System.out.printf("  < %10s us |%-" + BAR_WIDTH + "s %d%n", 1L << bucket, bar, buckets[bucket]);
+        }
+        System.out.println();
+    }
+
+    // Nearest rank
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
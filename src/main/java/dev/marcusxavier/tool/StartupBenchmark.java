@@ -0,0 +1,76 @@
+package dev.marcusxavier.tool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Time from starting a jlox process to its first byte of output, on a one line script, with and without the
+// AppCDS archive the package build records. Runs are interleaved so both configurations see the same machine
+// load. "no CDS" turns off the JDK's own archive too, for reference.
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "dev.marcusxavier.lox.Lox";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: startup_benchmark <jar> <archive> [runs]");
+            System.exit(64);
+        }
+
+        String jar = Paths.get(args[0]).toAbsolutePath().toString();
+        String archive = Paths.get(args[1]).toAbsolutePath().toString();
+        int runs = args.length == 3 ? Integer.parseInt(args[2]) : 20;
+        if (!Files.isRegularFile(Paths.get(archive))) {
+            System.err.println("No archive at " + archive + ", run mvn package first");
+            System.exit(66);
+        }
+
+        Path script = Files.createTempFile("startup", ".lox");
+        Files.writeString(script, "1 + 2 * 3");
+        script.toFile().deleteOnExit();
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<List<String>> commands = List.of(
+                List.of(java, "-Xshare:off", "-cp", jar, MAIN_CLASS, script.toString()),
+                List.of(java, "-cp", jar, MAIN_CLASS, script.toString()),
+                List.of(java, "-XX:SharedArchiveFile=" + archive, "-cp", jar, MAIN_CLASS, script.toString()));
+        String[] names = {"no CDS", "JDK archive only", "AppCDS archive"};
+
+        // One untimed round first, for the file system cache
+        for (List<String> command : commands) firstOutput(command);
+
+        long[][] times = new long[commands.size()][runs];
+        for (int run = 0; run < runs; run++) {
+            for (int i = 0; i < commands.size(); i++) times[i][run] = firstOutput(commands.get(i));
+        }
+
+        System.out.printf("Time to first output over %d runs (ms)%n", runs);
+        for (int i = 0; i < commands.size(); i++) {
+            long[] sorted = times[i].clone();
+            Arrays.sort(sorted);
+            System.out.printf("  %-18s median %6.1f  min %6.1f  max %6.1f%n", names[i], sorted[runs / 2] / 1e6,
+                    sorted[0] / 1e6, sorted[runs - 1] / 1e6);
+        }
+    }
+
+    // Nanoseconds until the process writes its first byte to stdout
+    private static long firstOutput(List<String> command) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(new ArrayList<>(command));
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        long started = System.nanoTime();
+        Process process = builder.start();
+        try (InputStream out = process.getInputStream()) {
+            if (out.read() < 0) throw new IllegalStateException("No output from " + String.join(" ", command));
+            long elapsed = System.nanoTime() - started;
+            out.transferTo(OutputStream.nullOutputStream());
+            process.waitFor();
+            return elapsed;
+        }
+    }
+}
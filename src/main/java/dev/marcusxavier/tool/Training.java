@@ -0,0 +1,28 @@
+package dev.marcusxavier.tool;
+
+import dev.marcusxavier.lox.Lox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// The workload the package build runs to record the AppCDS archive (see pom.xml and bin/jlox). Every class it
+// loads is stored in the archive already parsed and verified, so a jlox run that needs the same classes skips
+// most of the class loading.
+//
+// It is a normal run of a script, through the same entry point and path bin/jlox takes, on an expression that
+// uses every token and node type. The build sends what it prints to target/appcds-training.log.
+public class Training {
+    private static final String SCRIPT = """
+            /* every token type */ (-(1.5 + 2) * 3 - 4 / 5 >= 0) == !(nil != false)
+                != ("a" + "b" == "ab") == (1 < 2) == (3 > 4) == (5 <= 6) // and node type
+            """;
+
+    public static void main(String[] args) throws IOException {
+        Path script = Files.createTempFile("training", ".lox");
+        Files.writeString(script, SCRIPT);
+        script.toFile().deleteOnExit();
+        // Exits the VM, which is when the archive is written
+        Lox.main(new String[]{script.toString()});
+    }
+}
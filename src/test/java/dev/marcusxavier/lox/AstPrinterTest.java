@@ -0,0 +1,64 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstPrinterTest {
+    private static final List<String> WITH_ERRORS = List.of("1 2 + (3 *) foo", "(1 + ) 2", "1 foo + 2 3", "!", "nil");
+
+    @Test
+    void printersMatchTheRecursiveOnes() throws IOException {
+        AstPrinter lisp = new AstPrinter();
+        PolishAstPrinter polish = new PolishAstPrinter();
+        ExpressionGenerator generator = new ExpressionGenerator(20, false);
+        for (int i = 0; i < 5000; i++) {
+            String source = generator.next(1 + i % 10);
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+
+            assertEquals(ReferencePrinters.lisp(expression), lisp.print(expression), source);
+            assertEquals(ReferencePrinters.polish(expression), polish.print(expression), source);
+        }
+
+        for (String source : WITH_ERRORS) {
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            assertEquals(ReferencePrinters.lisp(expression), lisp.print(expression), source);
+            assertEquals(ReferencePrinters.polish(expression), polish.print(expression), source);
+        }
+
+        // Straight to a writer, the printers reused
+        Expr expression = Trees.parse("-(1 + 2) * !nil", Diagnostics.collecting());
+        StringWriter out = new StringWriter();
+        lisp.print(expression, out);
+        polish.print(expression, out);
+        assertEquals(ReferencePrinters.lisp(expression) + ReferencePrinters.polish(expression), out.toString());
+    }
+
+    @Test
+    void deepGroupsPrintLisp() {
+        int levels = 200_000;
+        assertEquals(" ".repeat(levels) + "1.0", new AstPrinter().print(groups(levels)));
+    }
+
+    @Test
+    void deepGroupsPrintPolish() {
+        int levels = 200_000;
+        assertEquals("(".repeat(levels) + "1.0 " + "group) ".repeat(levels),
+                new PolishAstPrinter().print(groups(levels)));
+    }
+
+    private static Expr groups(int levels) {
+        String source = "(".repeat(levels) + "1" + ")".repeat(levels);
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                levels, ExprFactory.PLAIN, diagnostics).parse();
+        assertFalse(diagnostics.hadError());
+        return expression;
+    }
+}
@@ -0,0 +1,75 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every tier has to print what the Interpreter prints, for values and runtime errors, on trees as parsed and as
+// the Optimizer leaves them (which is what Lox runs)
+class ExecutionTiersTest {
+    @Test
+    void vmAgreesWithTheInterpreter() {
+        VM vm = new VM();
+        check(1, expression -> vm.run(new BytecodeCompiler().compile(expression)));
+    }
+
+    @Test
+    void closuresAgreeWithTheInterpreter() {
+        check(4, expression -> new ClosureCompiler().compile(expression).get());
+    }
+
+    // A compiled closure tree is built once and can run any number of times
+    @Test
+    void closuresCanRunAgain() {
+        Expr expression = Trees.parse("(1 + 2) * -3 == -9", Diagnostics.collecting());
+        Supplier<Object> compiled = new ClosureCompiler().compile(expression);
+        for (int run = 0; run < 3; run++) assertEquals(true, compiled.get());
+    }
+
+    // Chains far longer than the Java stack is deep, which every pass walks in a loop
+    @Test
+    void longChainsRunInEveryTier() {
+        int terms = 200_000;
+        Map<String, String> chains = Map.of(
+                "1" + " + 1".repeat(terms - 1), "200000",
+                "\"a\"" + " + \"\"".repeat(terms - 1), "a",
+                "true" + " == true".repeat(terms - 1), "true",
+                "1 < 2" + " != false".repeat(terms), "true",
+                "nil" + " - 1".repeat(terms - 1), "Operands must be numbers. [line 1]");
+
+        for (Map.Entry<String, String> chain : chains.entrySet()) {
+            Diagnostics diagnostics = Diagnostics.collecting();
+            Expr expression = Trees.parse(chain.getKey(), diagnostics);
+            assertFalse(diagnostics.hadError());
+            Expr optimized = new Optimizer().optimize(expression);
+
+            List<Supplier<Object>> tiers = List.of(
+                    () -> new Interpreter().evaluate(expression),
+                    () -> new Interpreter().evaluate(optimized),
+                    () -> new VM().run(new BytecodeCompiler().compile(expression)),
+                    () -> new ClosureCompiler().compile(expression).get());
+            for (Supplier<Object> tier : tiers) assertEquals(chain.getValue(), ReferenceInterpreter.outcome(tier));
+        }
+    }
+
+    // Shared with JitTierTest
+    static void check(long seed, Function<Expr, Object> tier) {
+        for (boolean numeric : new boolean[]{true, false}) {
+            ExpressionGenerator generator = new ExpressionGenerator(seed, numeric);
+            for (int i = 0; i < 3000; i++) {
+                String source = generator.next(1 + i % 8);
+                Expr expression = Trees.parse(source, Diagnostics.collecting());
+                String expected = ReferenceInterpreter.outcome(() -> new Interpreter().evaluate(expression));
+
+                assertEquals(expected, ReferenceInterpreter.outcome(() -> tier.apply(expression)), source);
+                Expr optimized = new Optimizer().optimize(expression);
+                assertEquals(expected, ReferenceInterpreter.outcome(() -> tier.apply(optimized)), source);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExprArenaTest {
+    private static final List<String> WITH_ERRORS = List.of("1 2 + (3 *) foo", "(1 + ) 2", "1 foo + 2 3", "!");
+
+    @Test
+    void treesComeBackAsPacked() {
+        ExpressionGenerator generator = new ExpressionGenerator(18, false);
+        for (int i = 0; i < 2000; i++) {
+            String source = generator.next(1 + i % 8);
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+
+            assertEquals(Trees.show(expression), Trees.show(ExprArena.of(expression).toExpr()), source);
+        }
+
+        for (String source : WITH_ERRORS) {
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            assertEquals(Trees.show(expression), Trees.show(ExprArena.of(expression).toExpr()), source);
+        }
+    }
+
+    // The visitors see the same tree through view() as on the object tree
+    @Test
+    void visitorsRunOnTheArena() {
+        ExpressionGenerator generator = new ExpressionGenerator(19, false);
+        for (int i = 0; i < 2000; i++) {
+            String source = generator.next(1 + i % 8);
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            ExprArena arena = ExprArena.of(expression);
+
+            assertEquals(new AstPrinter().print(expression), new AstPrinter().print(arena.view()), source);
+            assertEquals(new PolishAstPrinter().print(expression), new PolishAstPrinter().print(arena.view()), source);
+            assertEquals(ReferenceInterpreter.outcome(() -> new Interpreter().evaluate(expression)),
+                    ReferenceInterpreter.outcome(() -> arena.accept(new Interpreter())), source);
+        }
+
+        for (String source : WITH_ERRORS) {
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            assertEquals(new AstPrinter().print(expression), new AstPrinter().print(ExprArena.of(expression).view()),
+                    source);
+        }
+    }
+
+    @Test
+    void deepTreesPackAndPrint() {
+        int levels = 200_000;
+        String source = "(".repeat(levels) + "1" + ")".repeat(levels) + " + 2".repeat(levels);
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                levels, ExprFactory.PLAIN, diagnostics).parse();
+        assertFalse(diagnostics.hadError());
+
+        ExprArena arena = ExprArena.of(expression);
+        assertEquals(2 * levels + 1 + levels, arena.size());
+        assertEquals(new AstPrinter().print(expression), new AstPrinter().print(arena.view()));
+    }
+
+    // The passes walk operator chains in a loop, through the arena as well
+    @Test
+    void longChainsRunOnTheArena() {
+        int terms = 100_000;
+        Expr expression = Trees.parse("1" + " + 1".repeat(terms - 1), Diagnostics.collecting());
+        ExprArena arena = ExprArena.of(expression);
+
+        List<Supplier<Object>> tiers = List.of(
+                () -> arena.accept(new Interpreter()),
+                () -> new Interpreter().evaluate(new Optimizer().optimize(arena.view())),
+                () -> new VM().run(new BytecodeCompiler().compile(arena.view())),
+                () -> new ClosureCompiler().compile(arena.view()).get());
+        for (Supplier<Object> tier : tiers) assertEquals("100000", ReferenceInterpreter.outcome(tier));
+        assertEquals(new PolishAstPrinter().print(expression), new PolishAstPrinter().print(arena.view()));
+    }
+
+    @Test
+    void sharedSubtreesAreStoredOnce() {
+        String source = "(1 + 2) * (1 + 2)";
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr shared = new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                Parser.DEFAULT_MAX_NESTING, new HashConsingFactory(), diagnostics).parse();
+
+        ExprArena arena = ExprArena.of(shared);
+        assertEquals(5, arena.size());
+        assertEquals(9, ExprArena.of(Trees.parse(source, diagnostics)).size());
+        assertEquals(Trees.show(shared), Trees.show(arena.toExpr()));
+    }
+
+    @Test
+    void writtenArenasReadBack() throws IOException {
+        for (String source : List.of("(1.5 + 2.25) * 3 - 0.125 == !\"s\" != nil", "true == \"été\"",
+                "1 2 + (3 *) foo")) {
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            byte[] bytes = written(ExprArena.of(expression));
+
+            assertEquals(Trees.show(expression), Trees.show(read(bytes).toExpr()), source);
+        }
+    }
+
+    @Test
+    void damagedArenasAreRejected() throws IOException {
+        // A number, then a unary minus whose child is at node 0
+        byte[] bytes = written(ExprArena.of(Trees.parse("-1", Diagnostics.collecting())));
+        assertEquals("(- 1.0)", Trees.show(read(bytes).toExpr()));
+
+        // Its child pointing at itself, or after it
+        for (int child : new int[]{1, 2, -1}) {
+            byte[] damaged = bytes.clone();
+            ByteBuffer.wrap(damaged).putInt(Integer.BYTES * 6, child);
+            assertThrows(IOException.class, () -> read(damaged), "child " + child);
+        }
+
+        // A node count that cannot fit in the data
+        byte[] damaged = bytes.clone();
+        ByteBuffer.wrap(damaged).putInt(0, 1 << 20);
+        assertThrows(IOException.class, () -> read(damaged));
+    }
+
+    private static byte[] written(ExprArena arena) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        arena.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static ExprArena read(byte[] bytes) throws IOException {
+        return ExprArena.read(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.marcusxavier.lox;
+
+import java.util.Random;
+
+// Random well formed expressions, the same ones for the same seed. Layout between tokens (blanks, newlines and
+// comments) is random too. Numbers keep to small integers and halves so every tier computes them exactly.
+final class ExpressionGenerator {
+    private static final String[] BINARY = {"==", "!=", "<", "<=", ">", ">=", "+", "-", "*", "/"};
+    private static final String[] LAYOUT = {" ", " ", " ", "", "\n", "\t", " // note\n", " /* note */ ",
+            " /* nested /* note */ */ "};
+
+    private final Random random;
+    private final boolean numeric;
+
+    // numeric: only numbers and arithmetic, so evaluating never fails on operand types
+    ExpressionGenerator(long seed, boolean numeric) {
+        this.random = new Random(seed);
+        this.numeric = numeric;
+    }
+
+    String next(int maxDepth) {
+        StringBuilder out = new StringBuilder();
+        expression(out, maxDepth);
+        return out.toString();
+    }
+
+    private void expression(StringBuilder out, int depth) {
+        int choice = depth <= 0 ? 0 : random.nextInt(6);
+        switch (choice) {
+            case 0, 1 -> literal(out);
+            case 2 -> {
+                out.append(numeric || random.nextBoolean() ? "-" : "!");
+                layout(out);
+                expression(out, depth - 1);
+            }
+            case 3 -> {
+                out.append('(');
+                layout(out);
+                expression(out, depth - 1);
+                layout(out);
+                out.append(')');
+            }
+            default -> {
+                expression(out, depth - 1);
+                layout(out);
+                out.append(numeric ? BINARY[6 + random.nextInt(4)] : BINARY[random.nextInt(BINARY.length)]);
+                layout(out);
+                expression(out, depth - 1);
+            }
+        }
+    }
+
+    private void literal(StringBuilder out) {
+        int choice = numeric ? 0 : random.nextInt(6);
+        switch (choice) {
+            case 0, 1, 2 -> {
+                out.append(random.nextInt(100));
+                if (random.nextInt(4) == 0) out.append(".5");
+            }
+            case 3 -> out.append('"').append((char) ('a' + random.nextInt(3))).append('"');
+            case 4 -> out.append(random.nextBoolean() ? "true" : "false");
+            default -> out.append("nil");
+        }
+    }
+
+    private void layout(StringBuilder out) {
+        out.append(LAYOUT[random.nextInt(LAYOUT.length)]);
+    }
+}
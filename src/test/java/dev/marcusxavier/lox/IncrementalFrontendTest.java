@@ -0,0 +1,154 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalFrontendTest {
+    private static final Pattern NUMBER = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final String[] LAYOUT = {"", " ", "\n", "\n\n", " /* x */ ", "// y\n"};
+    private static final String[] BROKEN = {"(", ")", "+", "* *", "\"", "/*", "*/", "@", "\n", "1", ""};
+
+    // Edits keep the source well formed: a number is replaced with another expression, and layout goes around it
+    @Test
+    void editsGiveTheTreesOfAFullParse() {
+        ExpressionGenerator generator = new ExpressionGenerator(8, false);
+        Random random = new Random(8);
+        IncrementalFrontend frontend = new IncrementalFrontend();
+        int reused = 0;
+
+        for (int round = 0; round < 200; round++) {
+            IncrementalFrontend.Snapshot snapshot = frontend.parse(generator.next(7));
+            for (int edit = 0; edit < 10; edit++) {
+                List<int[]> numbers = new ArrayList<>();
+                Matcher matcher = NUMBER.matcher(frontend.source());
+                while (matcher.find()) numbers.add(new int[]{matcher.start(), matcher.end()});
+                if (numbers.isEmpty()) break;
+                int[] number = numbers.get(random.nextInt(numbers.size()));
+
+                String replacement = LAYOUT[random.nextInt(LAYOUT.length)]
+                        + (random.nextBoolean() ? String.valueOf(random.nextInt(1000)) : "(" + generator.next(2) + ")")
+                        + LAYOUT[random.nextInt(LAYOUT.length)];
+                snapshot = frontend.edit(number[0], number[1], replacement);
+                reused += snapshot.reusedGroups;
+
+                assertSameAsFullParse(frontend.source(), snapshot);
+                assertFalse(snapshot.diagnostics.hadError());
+            }
+        }
+
+        assertTrue(reused > 0);
+    }
+
+    // Anything anywhere, so groups get opened, closed and cut by strings and comments, and syntax errors come and go
+    @Test
+    void brokenEditsGiveTheTreesOfAFullParse() {
+        ExpressionGenerator generator = new ExpressionGenerator(9, false);
+        Random random = new Random(9);
+        IncrementalFrontend frontend = new IncrementalFrontend();
+
+        for (int round = 0; round < 200; round++) {
+            String source = generator.next(7);
+            frontend.parse(source);
+            for (int edit = 0; edit < 20; edit++) {
+                int start = random.nextInt(source.length() + 1);
+                int end = start + random.nextInt(Math.min(4, source.length() - start) + 1);
+                String replacement = BROKEN[random.nextInt(BROKEN.length)];
+                IncrementalFrontend.Snapshot snapshot = frontend.edit(start, end, replacement);
+                source = source.substring(0, start) + replacement + source.substring(end);
+
+                assertEquals(source, frontend.source());
+                assertSameAsFullParse(source, snapshot);
+            }
+        }
+    }
+
+    // Every group moves down a line, and keeps its tree
+    @Test
+    void aLineAddedAtTheTopReusesEveryGroup() {
+        String source = "(1 + 2) * (3 -\n 4)\n+ (5 / (6 + 7))";
+        IncrementalFrontend frontend = new IncrementalFrontend();
+        frontend.parse(source);
+
+        IncrementalFrontend.Snapshot snapshot = frontend.edit(0, 0, "\n");
+        assertEquals(3, snapshot.reusedGroups);
+        assertSameAsFullParse("\n" + source, snapshot);
+
+        snapshot = frontend.edit(0, 1, "");
+        assertEquals(3, snapshot.reusedGroups);
+        assertSameAsFullParse(source, snapshot);
+    }
+
+    // The error in the outer group makes the parser skip the inner one, which must not come back as it was
+    @Test
+    void anEditInAGroupSkippedOverStaysUntilItIsParsed() {
+        IncrementalFrontend frontend = new IncrementalFrontend();
+        frontend.parse("(1 + (2 * 3))");
+
+        assertTrue(frontend.edit(3, 4, "2").diagnostics.hadError());
+        assertTrue(frontend.edit(10, 11, "4").diagnostics.hadError());
+        IncrementalFrontend.Snapshot snapshot = frontend.edit(3, 4, "+");
+        assertEquals("(1 + (2 * 4))", frontend.source());
+        assertSameAsFullParse(frontend.source(), snapshot);
+    }
+
+    // The ')' in front keeps a syntax error in every parse, until there are too many edits to keep track of
+    @Test
+    void tooManyEditsWithErrorsDropEveryGroup() {
+        StringBuilder builder = new StringBuilder(")");
+        for (int i = 0; i < IncrementalFrontend.MAX_EDITS + 10; i++) builder.append(" + (1 * 1)");
+        IncrementalFrontend frontend = new IncrementalFrontend();
+        frontend.parse(builder.toString());
+
+        for (int i = 0; i < IncrementalFrontend.MAX_EDITS + 10; i++) {
+            int digit = frontend.source().indexOf("1 * 1");
+            assertTrue(frontend.edit(digit + 4, digit + 5, "2").diagnostics.hadError());
+        }
+        IncrementalFrontend.Snapshot snapshot = frontend.edit(0, 1, "1");
+        assertFalse(snapshot.diagnostics.hadError());
+        assertSameAsFullParse(frontend.source(), snapshot);
+    }
+
+    @Test
+    void scanErrorsAreReportedForTheRescannedText() {
+        IncrementalFrontend frontend = new IncrementalFrontend();
+        assertFalse(frontend.parse("(1 + 2) * 3").diagnostics.hadError());
+
+        IncrementalFrontend.Snapshot snapshot = frontend.edit(10, 11, "@");
+        assertEquals(List.of("[Line 1] Error : Unexpected character.", "[Line 1:12] Error  at end: Expect expression"),
+                snapshot.diagnostics.messages());
+    }
+
+    private static void assertSameAsFullParse(String source, IncrementalFrontend.Snapshot snapshot) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expected = Trees.parse(source, diagnostics);
+        assertEquals(Trees.show(expected), Trees.show(snapshot.expression), source);
+        assertEquals(columns(expected, new StringBuilder()), columns(snapshot.expression, new StringBuilder()),
+                source);
+    }
+
+    // Trees.show has the operator lines, these are their columns
+    private static String columns(Expr expr, StringBuilder out) {
+        switch (expr) {
+            case Expr.Binary binary -> {
+                columns(binary.left, out);
+                out.append(binary.operator.column()).append(' ');
+                columns(binary.right, out);
+            }
+            case Expr.Unary unary -> {
+                out.append(unary.operator.column()).append(' ');
+                columns(unary.right, out);
+            }
+            case Expr.Grouping grouping -> columns(grouping.expression, out);
+            default -> {
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpreterTest {
+    @Test
+    void unboxedEvaluationAgreesWithBoxedEvaluation() {
+        for (boolean numeric : new boolean[]{true, false}) {
+            ExpressionGenerator generator = new ExpressionGenerator(numeric ? 1 : 2, numeric);
+            for (int i = 0; i < 5000; i++) {
+                String source = generator.next(1 + i % 8);
+                Expr expression = Trees.parse(source, Diagnostics.collecting());
+
+                assertEquals(ReferenceInterpreter.outcome(() -> new ReferenceInterpreter().evaluate(expression)),
+                        ReferenceInterpreter.outcome(() -> new Interpreter().evaluate(expression)), source);
+            }
+        }
+    }
+
+    @Test
+    void errorsComeFromTheFirstOperandToFail() {
+        assertEquals("Operand must be a number. [line 1]", run("-\"a\" +\n-true"));
+        assertEquals("Operand must be a number. [line 2]", run("1 +\n-true"));
+        assertEquals("Operands must be numbers. [line 1]", run("(1 < \"a\") - (2\n- nil)"));
+        assertEquals("Operands must be two numbers or two strings. [line 1]", run("\"a\" + 1"));
+        assertEquals("ab", run("\"a\" + \"b\""));
+        assertEquals("-0", run("-0"));
+        assertEquals("false", run("0 == -0"));
+    }
+
+    private static String run(String source) {
+        Expr expression = Trees.parse(source, Diagnostics.collecting());
+        return ReferenceInterpreter.outcome(() -> new Interpreter().evaluate(expression));
+    }
+}
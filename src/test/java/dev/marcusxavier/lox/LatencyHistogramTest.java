@@ -0,0 +1,81 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    private static final double[] PERCENTS = {0, 1, 10, 50, 90, 99, 99.9, 100};
+
+    // A percentile is the upper bound of the bucket of the exact (nearest rank) one, so never below it and at
+    // most an eighth above
+    @Test
+    void percentilesAreWithinOneBucketOfTheExactOnes() {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long[] samples = new long[1 + random.nextInt(2000)];
+            for (int i = 0; i < samples.length; i++) {
+                // Spread over every order of magnitude, from single nanoseconds to hours
+                samples[i] = (long) Math.pow(2, random.nextDouble() * 43);
+                histogram.record(samples[i]);
+            }
+            Arrays.sort(samples);
+
+            assertEquals(samples.length, histogram.count());
+            for (double percent : PERCENTS) {
+                int rank = (int) Math.max(1, Math.ceil(percent / 100 * samples.length));
+                long exact = samples[rank - 1];
+                long estimate = histogram.percentile(percent);
+
+                assertTrue(estimate >= exact && estimate <= exact + exact / 8,
+                        percent + "% is " + exact + ", got " + estimate);
+            }
+        }
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 8; value++) histogram.record(value);
+
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(3, histogram.percentile(50));
+        assertEquals(7, histogram.percentile(100));
+    }
+
+    @Test
+    void extremesAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(50));
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) histogram.record(random.nextInt(1_000_000));
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(threads.length * 50_000L, histogram.count());
+    }
+}
@@ -0,0 +1,36 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizerTest {
+    @Test
+    void foldingKeepsValuesAndErrors() {
+        for (boolean numeric : new boolean[]{true, false}) {
+            ExpressionGenerator generator = new ExpressionGenerator(numeric ? 9 : 10, numeric);
+            for (int i = 0; i < 5000; i++) {
+                String source = generator.next(1 + i % 8);
+                Expr expression = Trees.parse(source, Diagnostics.collecting());
+                Expr optimized = new Optimizer().optimize(expression);
+
+                assertEquals(ReferenceInterpreter.outcome(() -> new ReferenceInterpreter().evaluate(expression)),
+                        ReferenceInterpreter.outcome(() -> new ReferenceInterpreter().evaluate(optimized)), source);
+            }
+        }
+    }
+
+    @Test
+    void constantTreesFoldToOneLiteral() {
+        assertEquals("7.0", optimized("1 + 2 * 3"));
+        assertEquals("\"ab\"", optimized("(\"a\" + \"b\")"));
+        assertEquals("true", optimized("!!(1 < 2)"));
+        // The error stays, at its operator, the operands around it are still folded
+        assertEquals("(+@1 3.0 (-@2 \"a\" 1.0))", optimized("(1 + 2) +\n(\"a\" - 1)"));
+        assertEquals("(- (- \"a\"))", optimized("--\"a\""));
+    }
+
+    private static String optimized(String source) {
+        return Trees.show(new Optimizer().optimize(Trees.parse(source, Diagnostics.collecting())));
+    }
+}
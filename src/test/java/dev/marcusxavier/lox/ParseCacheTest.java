@@ -0,0 +1,116 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void treesComeBackAsStored() throws IOException {
+        ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_MAX_BYTES);
+        ExpressionGenerator generator = new ExpressionGenerator(17, false);
+        for (int i = 0; i < 500; i++) {
+            String source = generator.next(1 + i % 8);
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+
+            cache.store("entry" + i, expression);
+            assertEquals(Trees.show(expression), Trees.show(cache.load("entry" + i)), source);
+        }
+        assertNull(cache.load("missing"));
+    }
+
+    @Test
+    void everyFlippedBitIsAMiss() throws IOException {
+        ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_MAX_BYTES);
+        Expr expression = Trees.parse("(1.5 + 2.25) * 3 - 0.125 == !\"s\"", Diagnostics.collecting());
+        cache.store("tree", expression);
+        Path entry = directory.resolve("tree.loxc");
+        byte[] stored = Files.readAllBytes(entry);
+
+        for (int bit = 0; bit < stored.length * 8; bit++) {
+            byte[] damaged = stored.clone();
+            damaged[bit / 8] ^= (byte) (1 << (bit % 8));
+            Files.write(entry, damaged);
+
+            assertNull(cache.load("tree"), "bit " + bit);
+            assertFalse(Files.exists(entry), "bit " + bit);
+        }
+
+        for (int length = 0; length < stored.length; length++) {
+            Files.write(entry, Arrays.copyOf(stored, length));
+            assertNull(cache.load("tree"), "length " + length);
+        }
+
+        Files.write(entry, stored);
+        assertEquals(Trees.show(expression), Trees.show(cache.load("tree")));
+    }
+
+    @Test
+    void keysDependOnTheSourceAndTheNestingLimit() throws IOException {
+        Path first = Files.writeString(directory.resolve("a.lox"), "1 + 2");
+        Path second = Files.writeString(directory.resolve("b.lox"), "1 + 3");
+
+        assertEquals(ParseCache.key(first, 1000), ParseCache.key(first, 1000));
+        assertNotEquals(ParseCache.key(first, 1000), ParseCache.key(second, 1000));
+        assertNotEquals(ParseCache.key(first, 1000), ParseCache.key(first, 999));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        Expr expression = Trees.parse("1 + 2 * 3", Diagnostics.collecting());
+        new ParseCache(directory, ParseCache.DEFAULT_MAX_BYTES).store("size", expression);
+        long size = Files.size(directory.resolve("size.loxc"));
+        Files.delete(directory.resolve("size.loxc"));
+
+        // Room for three entries
+        ParseCache cache = new ParseCache(directory, size * 3);
+        for (int i = 0; i < 3; i++) {
+            cache.store("entry" + i, expression);
+            Files.setLastModifiedTime(directory.resolve("entry" + i + ".loxc"), FileTime.fromMillis(1000L * i));
+        }
+        // Reading entry0 makes entry1 the oldest
+        assertNotNull(cache.load("entry0"));
+        cache.store("entry3", expression);
+
+        assertNotNull(cache.load("entry0"));
+        assertNull(cache.load("entry1"));
+        assertNotNull(cache.load("entry2"));
+        assertNotNull(cache.load("entry3"));
+    }
+
+    @Test
+    void temporaryFilesDoNotPileUp() throws IOException {
+        Expr expression = Trees.parse("1 + 2 * 3", Diagnostics.collecting());
+        Path stale = Files.writeString(directory.resolve("died.tmp"), "half a tree");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(0));
+        Path fresh = Files.writeString(directory.resolve("writing.tmp"), "half a tree");
+
+        ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_MAX_BYTES);
+        cache.store("tree", expression);
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+
+        // A directory in the way of the entry makes the move fail, the temporary file must not stay behind
+        Files.delete(fresh);
+        Files.createDirectory(directory.resolve("blocked.loxc"));
+        Files.writeString(directory.resolve("blocked.loxc").resolve("inside"), "");
+        cache.store("blocked", expression);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("blocked.loxc", "tree.loxc"), files.map(file -> file.getFileName().toString())
+                    .sorted()
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserTest {
+    @Test
+    void buildsTheTreesOfTheRecursiveDescentParser() {
+        ExpressionGenerator generator = new ExpressionGenerator(14, false);
+        for (int i = 0; i < 5000; i++) {
+            String source = generator.next(1 + i % 8);
+            Diagnostics diagnostics = Diagnostics.collecting();
+            String expected = Trees.show(Trees.parseReference(source, diagnostics));
+
+            assertEquals(expected, Trees.show(Trees.parse(source, diagnostics)), source);
+            assertEquals(expected, Trees.show(Trees.parseStreamed(source, diagnostics)), source);
+            assertEquals(List.of(), diagnostics.messages(), source);
+        }
+    }
+
+    @Test
+    void hashConsingOnlyChangesSharing() {
+        ExpressionGenerator generator = new ExpressionGenerator(15, false);
+        for (int i = 0; i < 1000; i++) {
+            String source = generator.next(6);
+            Diagnostics diagnostics = Diagnostics.collecting();
+            Expr shared = new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                    Parser.DEFAULT_MAX_NESTING, new HashConsingFactory(), diagnostics).parse();
+
+            assertEquals(Trees.show(Trees.parseReference(source, diagnostics)), Trees.show(shared), source);
+        }
+    }
+
+    @Test
+    void binaryOperatorsAreLeftAssociativeByPrecedence() {
+        assertEquals("(-@1 (-@1 1.0 2.0) 3.0)", shown("1 - 2 - 3"));
+        assertEquals("(==@1 (<@1 1.0 (+@1 2.0 (*@1 3.0 4.0))) (! (- 5.0)))", shown("1 < 2 + 3 * 4 == !-5"));
+        assertEquals("(*@1 (group (+@1 1.0 2.0)) 3.0)", shown("(1 + 2) * 3"));
+        assertEquals("(+@2 1.0 \"a\")", shown("1\n+ \"a\""));
+    }
+
+    @Test
+    void nestingFarPastTheJavaStackParses() {
+        int levels = 200_000;
+        String source = "(".repeat(levels) + "-1" + ")".repeat(levels);
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                levels + 1, ExprFactory.PLAIN, diagnostics).parse();
+
+        assertFalse(diagnostics.hadError());
+        for (int i = 0; i < levels; i++) expression = ((Expr.Grouping) expression).expression;
+        assertEquals("(- 1.0)", Trees.show(expression));
+    }
+
+    @Test
+    void nestingOverTheLimitIsOneError() {
+        for (int limit : new int[]{1, 2, 7, Parser.DEFAULT_MAX_NESTING}) {
+            // limit levels parse, one more is an error
+            for (int levels = limit; levels <= limit + 1; levels++) {
+                for (String source : List.of("(".repeat(levels) + "1" + ")".repeat(levels), "-".repeat(levels) + "1",
+                        "(1 + ".repeat(levels) + "1" + ")".repeat(levels),
+                        "(-".repeat(levels / 2) + "-".repeat(levels % 2) + "1" + ")".repeat(levels / 2))) {
+                    Diagnostics diagnostics = Diagnostics.collecting();
+                    new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null, limit,
+                            ExprFactory.PLAIN, diagnostics).parse();
+
+                    String context = limit + " " + source;
+                    if (levels == limit) {
+                        assertFalse(diagnostics.hadError(), context);
+                    } else {
+                        assertEquals(1, diagnostics.count(), context + " " + diagnostics.messages());
+                        assertTrue(diagnostics.messages().get(0).endsWith("Expression nested too deeply."), context);
+                    }
+                }
+            }
+        }
+    }
+
+    // Binary operators do not nest, a chain of them is as long as the source makes it
+    @Test
+    void longChainsAreNotNesting() {
+        int terms = 200_000;
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = Trees.parse("1" + " + 1".repeat(terms - 1), diagnostics);
+
+        assertFalse(diagnostics.hadError());
+        for (int i = 1; i < terms; i++) expression = ((Expr.Binary) expression).left;
+        assertEquals("1.0", Trees.show(expression));
+    }
+
+    @Test
+    void reportsEveryErrorInOnePass() {
+        assertEquals(List.of(
+                "[Line 1:9] Error  at '(': Expect end of expression.",
+                "[Line 1:14] Error  at '*': Expect expression",
+                "[Line 1:15] Error  at ')': Expect expression"), errors("(1 + 2) (3 * *)"));
+        assertEquals(List.of(
+                "[Line 1:7] Error  at '3': Expect end of expression.",
+                "[Line 1:11] Error  at '*': Expect expression",
+                "[Line 1:15] Error  at '(': Expect end of expression.",
+                "[Line 1:16] Error  at end: Expect expression"), errors("1 + 2 3 * * 4 ("));
+        assertEquals(List.of(
+                "[Line 1:3] Error  at ')': Unmatched ')'.",
+                "[Line 1:5] Error  at '(': Expect end of expression.",
+                "[Line 1:7] Error  at '*': Expect expression",
+                "[Line 1:9] Error  at ')': Expect expression",
+                "[Line 1:11] Error  at '(': Expect end of expression.",
+                "[Line 1:13] Error  at '+': Expect expression",
+                "[Line 1:14] Error  at end: Expect expression"), errors("1 ) ( * ) ( +"));
+    }
+
+    @Test
+    void tokensThatCannotContinueTheExpressionAreReportedOnce() {
+        assertEquals(List.of("[Line 1:3] Error  at '2': Expect end of expression."), errors("1 2"));
+        assertEquals(List.of("[Line 1:3] Error  at 'foo': Expect end of expression."), errors("1 foo"));
+        assertEquals(List.of("[Line 1:3] Error  at 'foo': Expect end of expression."), errors("1 foo + 2"));
+        assertEquals(List.of("[Line 2:1] Error  at '2': Expect end of expression."), errors("1\n2 + 3"));
+    }
+
+    // Nothing parsed on either side of them is dropped, an Error node holds both
+    @Test
+    void tokensThatCannotContinueTheExpressionKeepTheirSurroundings() {
+        assertEquals("(<error> 1.0 2.0)", partial("1 2"));
+        assertEquals("(<error> 1.0)", partial("1 foo"));
+        assertEquals("(+@1 (<error> 1.0) 2.0)", partial("1 foo + 2"));
+        assertEquals("(<error> 1.0 (+@2 2.0 3.0))", partial("1\n2 + 3"));
+        assertEquals("(<error> (<error> 1.0 2.0) (group 3.0))", partial("1 2 (3)"));
+    }
+
+    @Test
+    void recoveryStopsAtMaxErrors() {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = new Parser(new Scanner(SourceText.of("1 2 3 4 5 6"), diagnostics).scanTokens(), null,
+                Parser.DEFAULT_MAX_NESTING, ExprFactory.PLAIN, diagnostics, 3).parse();
+
+        assertEquals(3, diagnostics.count());
+        assertInstanceOf(Expr.Error.class, expression);
+    }
+
+    private static List<String> errors(String source) {
+        Diagnostics buffered = Diagnostics.collecting();
+        Trees.parse(source, buffered);
+        Diagnostics streamed = Diagnostics.collecting();
+        Trees.parseStreamed(source, streamed);
+        assertEquals(buffered.messages(), streamed.messages(), source);
+        return buffered.messages();
+    }
+
+    private static String partial(String source) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = Trees.parse(source, diagnostics);
+        assertTrue(diagnostics.hadError());
+        assertEquals(Trees.show(expression), Trees.show(Trees.parseStreamed(source, diagnostics)));
+        return Trees.show(expression);
+    }
+
+    private static String shown(String source) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr expression = Trees.parse(source, diagnostics);
+        assertEquals(List.of(), diagnostics.messages());
+        return Trees.show(expression);
+    }
+}
@@ -0,0 +1,120 @@
+package dev.marcusxavier.lox;
+
+import java.util.function.Supplier;
+
+// Evaluates with boxed values all the way, the plain visitor the unboxed Interpreter has to agree with. Every tier
+// is checked against the Interpreter through outcome(), which covers values and runtime errors alike.
+class ReferenceInterpreter implements Expr.Visitor<Object> {
+    // What running something printed: its value, or its error and the line that error points at
+    static String outcome(Supplier<Object> run) {
+        try {
+            return Interpreter.stringify(run.get());
+        } catch (RuntimeError error) {
+            return error.getMessage() + " [line " + error.token.line() + "]";
+        }
+    }
+
+    Object evaluate(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
+
+        switch (expr.operator.type) {
+            case GREATER -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left > (double) right;
+            }
+            case GREATER_EQUAL -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left >= (double) right;
+            }
+            case LESS -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left < (double) right;
+            }
+            case LESS_EQUAL -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left <= (double) right;
+            }
+            case BANG_EQUAL -> {
+                return !isEqual(left, right);
+            }
+            case EQUAL_EQUAL -> {
+                return isEqual(left, right);
+            }
+            case MINUS -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left - (double) right;
+            }
+            case PLUS -> {
+                if (left instanceof Double && right instanceof Double) return (double) left + (double) right;
+                if (left instanceof String && right instanceof String) return (String) left + right;
+                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+            }
+            case SLASH -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left / (double) right;
+            }
+            case STAR -> {
+                checkNumberOperands(expr.operator, left, right);
+                return (double) left * (double) right;
+            }
+        }
+
+        throw new IllegalStateException(expr.operator.type.name());
+    }
+
+    @Override
+    public Object visitErrorExpr(Expr.Error expr) {
+        throw new RuntimeError(expr.token, "Cannot evaluate code with syntax errors.");
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return evaluate(expr.expression);
+    }
+
+    @Override
+    public Object visitLiteralExpr(Expr.Literal expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        Object right = evaluate(expr.right);
+
+        switch (expr.operator.type) {
+            case BANG -> {
+                return !isTruthy(right);
+            }
+            case MINUS -> {
+                if (!(right instanceof Double)) throw new RuntimeError(expr.operator, "Operand must be a number.");
+                return -(double) right;
+            }
+        }
+
+        throw new IllegalStateException(expr.operator.type.name());
+    }
+
+    private static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    private static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+
+    private static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) return true;
+        if (a == null) return false;
+
+        return a.equals(b);
+    }
+}
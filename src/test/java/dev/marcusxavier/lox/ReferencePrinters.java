@@ -0,0 +1,99 @@
+package dev.marcusxavier.lox;
+
+// The recursive AstPrinter and PolishAstPrinter the iterative ones replaced, each node returning its own String.
+// Only for trees of test size.
+final class ReferencePrinters {
+    private ReferencePrinters() {
+    }
+
+    static String lisp(Expr expr) {
+        return expr.accept(new Lisp());
+    }
+
+    static String polish(Expr expr) {
+        return expr.accept(new Polish());
+    }
+
+    private static final class Lisp implements Expr.Visitor<String> {
+        @Override
+        public String visitBinaryExpr(Expr.Binary expr) {
+            return parenthesize(expr.operator.lexeme, expr.left, expr.right);
+        }
+
+        @Override
+        public String visitErrorExpr(Expr.Error expr) {
+            if (!expr.parts.isEmpty()) return parenthesize("<error>", expr.parts.toArray(new Expr[0]));
+            return "<error>";
+        }
+
+        @Override
+        public String visitGroupingExpr(Expr.Grouping expr) {
+            return parenthesize(null, expr.expression);
+        }
+
+        @Override
+        public String visitLiteralExpr(Expr.Literal expr) {
+            if (expr.value == null) return "nil";
+            return expr.value.toString();
+        }
+
+        @Override
+        public String visitUnaryExpr(Expr.Unary expr) {
+            return parenthesize(expr.operator.lexeme, expr.right);
+        }
+
+        private String parenthesize(String name, Expr... exprs) {
+            StringBuilder builder = new StringBuilder();
+
+            if (name != null) builder.append("(").append(name);
+            for (Expr expr : exprs) {
+                builder.append(" ");
+                builder.append(expr.accept(this));
+            }
+            if (name != null) builder.append(")");
+
+            return builder.toString();
+        }
+    }
+
+    private static final class Polish implements Expr.Visitor<String> {
+        @Override
+        public String visitBinaryExpr(Expr.Binary expr) {
+            return parenthesize(expr.operator.lexeme, expr.left, expr.right);
+        }
+
+        @Override
+        public String visitErrorExpr(Expr.Error expr) {
+            if (!expr.parts.isEmpty()) return parenthesize("<error>", expr.parts.toArray(new Expr[0]));
+            return "<error> ";
+        }
+
+        @Override
+        public String visitGroupingExpr(Expr.Grouping expr) {
+            return parenthesize("group", expr.expression);
+        }
+
+        @Override
+        public String visitLiteralExpr(Expr.Literal expr) {
+            if (expr.value == null) return "nil";
+            return expr.value + " ";
+        }
+
+        @Override
+        public String visitUnaryExpr(Expr.Unary expr) {
+            return parenthesize(expr.operator.lexeme, expr.right);
+        }
+
+        private String parenthesize(String name, Expr... exprs) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append("(");
+            for (Expr expr : exprs) {
+                builder.append(expr.accept(this));
+            }
+            builder.append(name).append(") ");
+
+            return builder.toString();
+        }
+    }
+}
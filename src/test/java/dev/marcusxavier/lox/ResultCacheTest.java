@@ -0,0 +1,106 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+    @Test
+    void linesThatOnlyLookDifferentHitByTree() {
+        ResultCache cache = new ResultCache(ResultCache.DEFAULT_CAPACITY);
+        ResultCache.Result result = enter(cache, "1 + 2 * 3");
+        assertEquals(7.0, result.value());
+
+        for (String line : List.of("1+2*3", "  1 +\t2 * 3 ", "1 + 2 * 3 // seven", "1.0 + 2.00 * 3", "01 + 2 * 3.0")) {
+            assertNull(cache.get(line), line);
+            assertSame(result, cache.get(parse(cache, line)), line);
+        }
+
+        for (String line : List.of("(1 + 2) * 3", "1 + 2 * 4", "1 - 2 * 3", "3 * 2 + 1")) {
+            assertNull(cache.get(parse(cache, line)), line);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedLinesAreEvictedFromBothLevels() {
+        ResultCache cache = new ResultCache(2);
+        ResultCache.Result one = enter(cache, "1");
+        ResultCache.Result two = enter(cache, "2");
+        assertNotNull(two);
+
+        // Reading "1" by text and by tree makes "2" the oldest on both levels
+        assertSame(one, cache.get("1"));
+        assertSame(one, cache.get(parse(cache, "1.0")));
+        ResultCache.Result three = enter(cache, "3");
+
+        assertNull(cache.get("2"));
+        assertNull(cache.get(parse(cache, "2")));
+        assertSame(one, cache.get("1"));
+        assertSame(one, cache.get(parse(cache, "1")));
+        assertSame(three, cache.get("3"));
+        assertSame(three, cache.get(parse(cache, "3")));
+    }
+
+    @Test
+    void aFreshFactoryDropsTheTreeLevel() {
+        // Room for 64 distinct nodes before the factory is replaced
+        ResultCache cache = new ResultCache(1);
+        Expr tree = parse(cache, "1 + 2");
+        ResultCache.Result result = evaluate(tree);
+        cache.put("1 + 2", tree, result);
+        ExprFactory factory = cache.factory();
+
+        StringJoiner sum = new StringJoiner(" + ");
+        for (int i = 0; i < 100; i++) sum.add(Integer.toString(i));
+        parse(cache, sum.toString());
+
+        assertNotSame(factory, cache.factory());
+        assertNull(cache.get(tree));
+        Expr again = parse(cache, "1 + 2");
+        assertNotSame(tree, again);
+        assertNull(cache.get(again));
+        // The text level does not depend on the factory
+        assertSame(result, cache.get("1 + 2"));
+    }
+
+    @Test
+    void runtimeErrorsAreCachedToo() {
+        ResultCache cache = new ResultCache(ResultCache.DEFAULT_CAPACITY);
+        ResultCache.Result result = enter(cache, "-\"a\" + 1");
+        assertNull(result.value());
+        assertEquals("Operand must be a number.", result.error().getMessage());
+
+        assertSame(result, cache.get("-\"a\" + 1"));
+        assertSame(result, cache.get(parse(cache, "- \"a\" + 1.0")));
+    }
+
+    // What the REPL does with a line it has not seen
+    private static ResultCache.Result enter(ResultCache cache, String line) {
+        Expr tree = parse(cache, line);
+        assertNull(cache.get(tree), line);
+        ResultCache.Result result = evaluate(tree);
+        cache.put(line, tree, result);
+        return result;
+    }
+
+    private static Expr parse(ResultCache cache, String line) {
+        Diagnostics diagnostics = Diagnostics.collecting();
+        Expr tree = new Parser(new Scanner(SourceText.of(line), diagnostics).scanTokens(), null,
+                Parser.DEFAULT_MAX_NESTING, cache.factory(), diagnostics).parse();
+        assertFalse(diagnostics.hadError(), line);
+        return tree;
+    }
+
+    private static ResultCache.Result evaluate(Expr tree) {
+        try {
+            return new ResultCache.Result(new Interpreter().evaluate(tree), null);
+        } catch (RuntimeError error) {
+            return new ResultCache.Result(null, error);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.marcusxavier.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SealedAstPrinterTest {
+    @Test
+    void printsWhatAstPrinterPrints() {
+        AstPrinter visitor = new AstPrinter();
+        SealedAstPrinter sealed = new SealedAstPrinter();
+        ExpressionGenerator generator = new ExpressionGenerator(21, false);
+        for (int i = 0; i < 5000; i++) {
+            String source = generator.next(1 + i % 10);
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+
+            assertEquals(visitor.print(expression), sealed.print(expression.accept(new ToSealed())), source);
+        }
+
+        for (String source : List.of("1 2 + (3 *) foo", "(1 + ) 2", "1 foo + 2 3", "!", "nil")) {
+            Expr expression = Trees.parse(source, Diagnostics.collecting());
+            assertEquals(visitor.print(expression), sealed.print(expression.accept(new ToSealed())), source);
+        }
+    }
+
+    @Test
+    void deepGroupsPrint() {
+        int levels = 200_000;
+        SealedExpr expression = new SealedExpr.Literal(1.0);
+        for (int i = 0; i < levels; i++) expression = new SealedExpr.Grouping(expression);
+
+        assertEquals(" ".repeat(levels) + "1.0", new SealedAstPrinter().print(expression));
+    }
+
+    // Recursive, only for trees of test size
+    private static final class ToSealed implements Expr.Visitor<SealedExpr> {
+        @Override
+        public SealedExpr visitBinaryExpr(Expr.Binary expr) {
+            return new SealedExpr.Binary(expr.left.accept(this), expr.operator, expr.right.accept(this));
+        }
+
+        @Override
+        public SealedExpr visitErrorExpr(Expr.Error expr) {
+            return new SealedExpr.Error(expr.token, expr.parts.stream().map(part -> part.accept(this)).toList());
+        }
+
+        @Override
+        public SealedExpr visitGroupingExpr(Expr.Grouping expr) {
+            return new SealedExpr.Grouping(expr.expression.accept(this));
+        }
+
+        @Override
+        public SealedExpr visitLiteralExpr(Expr.Literal expr) {
+            return new SealedExpr.Literal(expr.value);
+        }
+
+        @Override
+        public SealedExpr visitUnaryExpr(Expr.Unary expr) {
+            return new SealedExpr.Unary(expr.operator, expr.right.accept(this));
+        }
+    }
+}
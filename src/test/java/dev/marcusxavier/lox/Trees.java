@@ -0,0 +1,48 @@
+package dev.marcusxavier.lox;
+
+import dev.marcusxavier.lox.scanner.Scanner;
+import dev.marcusxavier.lox.scanner.SourceText;
+import dev.marcusxavier.lox.scanner.TokenBuffer;
+import dev.marcusxavier.lox.scanner.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Parsing shortcuts for the tests, and a printer that keeps groups and operator lines, which AstPrinter drops
+final class Trees {
+    private Trees() {
+    }
+
+    static Expr parse(String source, Diagnostics diagnostics) {
+        return new Parser(new Scanner(SourceText.of(source), diagnostics).scanTokens(), null,
+                Parser.DEFAULT_MAX_NESTING, ExprFactory.PLAIN, diagnostics).parse();
+    }
+
+    static Expr parseStreamed(String source, Diagnostics diagnostics) {
+        return new Parser(new TokenStream(new Scanner(SourceText.of(source), diagnostics)), null,
+                Parser.DEFAULT_MAX_NESTING, ExprFactory.PLAIN, diagnostics).parse();
+    }
+
+    // With the parser the iterative one replaced
+    static Expr parseReference(String source, Diagnostics diagnostics) {
+        TokenBuffer buffer = new Scanner(SourceText.of(source), diagnostics).scanTokens();
+        List<Token> tokens = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) tokens.add(buffer.token(i));
+        return new ReferenceParser(tokens, diagnostics).parse();
+    }
+
+    // Recursive, only for trees of test size
+    static String show(Expr expr) {
+        return switch (expr) {
+            case Expr.Binary binary -> "(" + binary.operator.lexeme + "@" + binary.operator.line() + " "
+                    + show(binary.left) + " " + show(binary.right) + ")";
+            case Expr.Unary unary -> "(" + unary.operator.lexeme + " " + show(unary.right) + ")";
+            case Expr.Grouping grouping -> "(group " + show(grouping.expression) + ")";
+            case Expr.Literal literal -> literal.value instanceof String text ? '"' + text + '"'
+                    : String.valueOf(literal.value);
+            case Expr.Error error -> error.parts.isEmpty() ? "<error>"
+                    : "(<error> " + String.join(" ", error.parts.stream().map(Trees::show).toList()) + ")";
+            default -> throw new IllegalArgumentException(expr.getClass().getName());
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Diagnostics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sources have to be several MB before they are split at all, chunks are at least 1MB
+class ParallelScannerTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void randomSourcesMatchTheSequentialScanner() {
+        SourceGenerator generator = new SourceGenerator(7, true);
+        for (int round = 0; round < 4; round++) {
+            StringBuilder source = new StringBuilder();
+            while (source.length() < 5 << 20) source.append(generator.next(200)).append('\n');
+            check("round " + round, source.toString());
+        }
+    }
+
+    // Chunk boundaries land inside long strings and comments, which hold what looks like code, quotes and
+    // comment marks
+    @Test
+    void boundariesInsideStringsAndCommentsRealign() {
+        String code = "1 + (2 * 3) /* c */ \"s\" // line\n";
+        String inString = "code ( + /* not a comment // nor this\n";
+        String inComment = "more \" quote ( and \"\" /* nested */ and\n";
+
+        StringBuilder source = new StringBuilder();
+        for (int part = 0; part < 6; part++) {
+            source.append(code.repeat(15_000));
+            if (part % 2 == 0) {
+                source.append('"').append(inString.repeat(30_000)).append("\"\n");
+            } else {
+                source.append("/*").append(inComment.repeat(30_000)).append("*/\n");
+            }
+        }
+        source.append("\"never closed\n").append(code.repeat(100));
+
+        check("adversarial", source.toString());
+    }
+
+    @Test
+    void strayCharactersInEveryChunkAreReportedOnceOnTheirLine() {
+        StringBuilder source = new StringBuilder();
+        for (int line = 0; line < 300_000; line++) {
+            source.append(line % 40_000 == 7 ? "1 @ 2 # \"s\"\n" : "12 + 34 * (5 - 6) / 7\n");
+        }
+        check("stray", source.toString());
+    }
+
+    private static void check(String label, String text) {
+        SourceText source = SourceText.of(text);
+        Diagnostics expected = Diagnostics.collecting();
+        TokenBuffer sequential = new Scanner(source, expected).scanTokens();
+        Diagnostics diagnostics = Diagnostics.collecting();
+        TokenBuffer parallel = new ParallelScanner(source, pool, diagnostics).scanTokens();
+
+        ScannerTest.assertSameTokens(label, sequential, parallel);
+        assertEquals(expected.messages(), diagnostics.messages(), label);
+    }
+}
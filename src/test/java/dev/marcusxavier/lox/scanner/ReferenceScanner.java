@@ -0,0 +1,197 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.ErrorReporter;
+import dev.marcusxavier.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static dev.marcusxavier.lox.TokenType.*;
+
+// The char by char scanner the table driven one replaced, with its literal, keyword and char class helpers folded
+// in. Two changes made since are applied here too: block comments no longer eat the char after their "*/"
+// (and no longer crash when they end the source), and a token's line is the one it starts on, a string that spans
+// lines used to get its last one.
+class ReferenceScanner {
+    record Lexeme(TokenType type, int start, int end, int line, int column, Object literal) {
+    }
+
+    private static final Map<String, TokenType> KEYWORDS = Map.ofEntries(
+            Map.entry("and", AND), Map.entry("class", CLASS), Map.entry("else", ELSE), Map.entry("false", FALSE),
+            Map.entry("for", FOR), Map.entry("fun", FUN), Map.entry("if", IF), Map.entry("nil", NIL),
+            Map.entry("or", OR), Map.entry("print", PRINT), Map.entry("return", RETURN), Map.entry("super", SUPER),
+            Map.entry("this", THIS), Map.entry("true", TRUE), Map.entry("var", VAR), Map.entry("while", WHILE));
+
+    private final String source;
+    private final ErrorReporter reporter;
+    private final List<Lexeme> tokens = new ArrayList<>();
+    private int start = 0;
+    private int current = 0;
+    private int line = 1;
+    private int startLine = 1;
+    private int lineStart = 0;
+    private int startColumn = 1;
+
+    ReferenceScanner(String source, ErrorReporter reporter) {
+        this.source = source;
+        this.reporter = reporter;
+    }
+
+    List<Lexeme> scanTokens() {
+        while (!isAtEnd()) {
+            start = current;
+            startLine = line;
+            startColumn = start - lineStart + 1;
+            scanToken();
+        }
+
+        tokens.add(new Lexeme(EOF, current, current, line, current - lineStart + 1, null));
+        return tokens;
+    }
+
+    private void scanToken() {
+        char c = advance();
+
+        switch (c) {
+            case '(' -> addToken(LEFT_PAREN);
+            case ')' -> addToken(RIGHT_PAREN);
+            case '{' -> addToken(LEFT_BRACE);
+            case '}' -> addToken(RIGHT_BRACE);
+            case ',' -> addToken(COMMA);
+            case '.' -> addToken(DOT);
+            case '-' -> addToken(MINUS);
+            case '+' -> addToken(PLUS);
+            case ';' -> addToken(SEMICOLON);
+            case '*' -> addToken(STAR);
+            case '%' -> addToken(MODULE);
+
+            case '!' -> addToken(match('=') ? BANG_EQUAL : BANG);
+            case '=' -> addToken(match('=') ? EQUAL_EQUAL : EQUAL);
+            case '<' -> addToken(match('=') ? LESS_EQUAL : LESS);
+            case '>' -> addToken(match('=') ? GREATER_EQUAL : GREATER);
+            case '/' -> {
+                if (match('/')) {
+                    while (peek() != '\n' && !isAtEnd()) advance();
+                } else if (match('*')) {
+                    multiLineComment();
+                } else {
+                    addToken(SLASH);
+                }
+            }
+            case ' ', '\r', '\t' -> {
+            }
+            case '\n' -> newLine(current);
+            case '"' -> string();
+            default -> {
+                if (isDigit(c)) {
+                    number();
+                } else if (isAlpha(c)) {
+                    identifier();
+                } else {
+                    reporter.error(line, "Unexpected character.");
+                }
+            }
+        }
+    }
+
+    private void multiLineComment() {
+        int nestLevel = 1;
+        while (nestLevel > 0 && !isAtEnd()) {
+            if (peek() == '\n') {
+                newLine(current + 1);
+            } else if (peek() == '*' && peekNext() == '/') {
+                nestLevel--;
+                advance();
+            } else if (peek() == '/' && peekNext() == '*') {
+                nestLevel++;
+                advance();
+            }
+
+            advance();
+        }
+
+        if (nestLevel > 0) reporter.error(line, "Unterminated comment.");
+    }
+
+    private void string() {
+        while (peek() != '"' && !isAtEnd()) {
+            if (peek() == '\n') newLine(current + 1);
+            advance();
+        }
+
+        if (isAtEnd()) {
+            reporter.error(line, "Unterminated string.");
+            return;
+        }
+
+        // The closing "
+        advance();
+        addToken(STRING, source.substring(start + 1, current - 1));
+    }
+
+    private void number() {
+        while (isDigit(peek())) advance();
+
+        if (peek() == '.' && isDigit(peekNext())) {
+            do {
+                advance();
+            } while (isDigit(peek()));
+        }
+
+        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+    }
+
+    private void identifier() {
+        while (isAlpha(peek()) || isDigit(peek())) advance();
+
+        addToken(KEYWORDS.getOrDefault(source.substring(start, current), IDENTIFIER));
+    }
+
+    // next is the offset just past the newline
+    private void newLine(int next) {
+        line++;
+        lineStart = next;
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private char advance() {
+        return source.charAt(current++);
+    }
+
+    private void addToken(TokenType type) {
+        addToken(type, null);
+    }
+
+    private void addToken(TokenType type, Object literal) {
+        tokens.add(new Lexeme(type, start, current, startLine, startColumn, literal));
+    }
+
+    private boolean match(char expected) {
+        if (isAtEnd() || peek() != expected) return false;
+
+        current++;
+        return true;
+    }
+
+    private boolean isAtEnd() {
+        return current >= source.length();
+    }
+
+    private char peek() {
+        if (isAtEnd()) return '\0';
+        return source.charAt(current);
+    }
+
+    private char peekNext() {
+        if (current + 1 >= source.length()) return '\0';
+        return source.charAt(current + 1);
+    }
+}
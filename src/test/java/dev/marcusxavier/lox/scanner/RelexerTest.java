@@ -0,0 +1,81 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Diagnostics;
+import dev.marcusxavier.lox.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelexerTest {
+    // Several edits on the same buffer, so the gap moves both ways between them
+    @Test
+    void editsGiveTheTokensOfAFullRescan() {
+        SourceGenerator generator = new SourceGenerator(8, true);
+        Random random = new Random(8);
+        for (int round = 0; round < 1000; round++) {
+            String source = generator.next(1 + random.nextInt(50));
+            TokenGapBuffer tokens = TokenGapBuffer.scan(source, Diagnostics.collecting());
+
+            for (int edit = 0; edit < 5; edit++) {
+                int start = random.nextInt(source.length() + 1);
+                int end = start + random.nextInt(Math.min(10, source.length() - start) + 1);
+                String replacement = random.nextInt(4) == 0 ? "" : generator.next(1 + random.nextInt(3));
+                String after = source.substring(0, start) + replacement + source.substring(end);
+                String label = source + " => " + after;
+
+                List<Old> previous = snapshot(tokens);
+                Relexer.Result result = Relexer.relex(tokens, start, end, replacement, Diagnostics.collecting());
+
+                assertEquals(after, tokens.text(), label);
+                ScannerTest.assertSameTokens(label, new Scanner(SourceText.of(after), Diagnostics.collecting())
+                        .scanTokens(), tokens);
+                checkReuse(label, previous, tokens, result, replacement.length() - (end - start));
+                source = after;
+            }
+        }
+    }
+
+    @Test
+    void anEditInsideALargeSourceOnlyRescansAroundIt() {
+        String line = "12 + 34 * (5 - 6) / \"seven\" // eight\n";
+        String before = line.repeat(10_000);
+        // The 34 of a line in the middle becomes 43
+        int start = line.length() * 5_000 + 5;
+        String after = before.substring(0, start) + "43" + before.substring(start + 2);
+
+        TokenGapBuffer tokens = TokenGapBuffer.scan(before, Diagnostics.collecting());
+        Relexer.Result result = Relexer.relex(tokens, start, start + 2, "43", Diagnostics.collecting());
+
+        ScannerTest.assertSameTokens("large", new Scanner(after).scanTokens(), tokens);
+        // The number, and the + before it, which could have run into the edit
+        assertEquals(2, result.suffixStart() - result.prefix());
+        assertEquals(0, result.indexShift());
+    }
+
+    private record Old(TokenType type, int start) {
+    }
+
+    private static List<Old> snapshot(TokenGapBuffer tokens) {
+        List<Old> old = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) old.add(new Old(tokens.type(i), tokens.start(i)));
+        return old;
+    }
+
+    // What Result promises about the old tokens: the prefix and the suffix are the old ones, the suffix shifted
+    private static void checkReuse(String label, List<Old> previous, TokenGapBuffer tokens, Relexer.Result result,
+                                   int shift) {
+        assertTrue(result.prefix() <= result.suffixStart() && result.suffixStart() <= tokens.size(), label);
+
+        for (int i = 0; i < result.prefix(); i++) {
+            assertEquals(previous.get(i), new Old(tokens.type(i), tokens.start(i)), label);
+        }
+        for (int i = result.suffixStart(); i < tokens.size(); i++) {
+            Old old = previous.get(i - result.indexShift());
+            assertEquals(new Old(old.type(), old.start() + shift), new Old(tokens.type(i), tokens.start(i)), label);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.marcusxavier.lox.scanner;
+
+import dev.marcusxavier.lox.Diagnostics;
+import dev.marcusxavier.lox.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScannerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void scansLikeTheCharByCharScanner() {
+        SourceGenerator generator = new SourceGenerator(5, true);
+        for (int i = 0; i < 3000; i++) {
+            String source = generator.next(1 + i % 60);
+            Diagnostics expected = Diagnostics.collecting();
+            List<ReferenceScanner.Lexeme> reference = new ReferenceScanner(source, expected).scanTokens();
+
+            Diagnostics diagnostics = Diagnostics.collecting();
+            assertSameTokens(source, reference, new Scanner(SourceText.of(source), diagnostics).scanTokens(), true);
+            assertEquals(expected.messages(), diagnostics.messages(), source);
+        }
+    }
+
+    @Test
+    void scansMappedFilesLikeStrings() throws IOException {
+        SourceGenerator generator = new SourceGenerator(4, false);
+        for (int i = 0; i < 500; i++) {
+            String source = generator.next(1 + i % 60);
+            Diagnostics expected = Diagnostics.collecting();
+            List<ReferenceScanner.Lexeme> reference = new ReferenceScanner(source, expected).scanTokens();
+
+            Path file = Files.writeString(directory.resolve(i + ".lox"), source, StandardCharsets.UTF_8);
+            Diagnostics diagnostics = Diagnostics.collecting();
+            // Offsets and columns count bytes there, they only match the reference's chars for ASCII
+            boolean ascii = StandardCharsets.US_ASCII.newEncoder().canEncode(source);
+            assertSameTokens(source, reference, new Scanner(SourceText.map(file), diagnostics).scanTokens(), ascii);
+            assertEquals(expected.messages(), diagnostics.messages(), source);
+        }
+    }
+
+    @Test
+    void pullModeGivesTheSameTokens() {
+        SourceGenerator generator = new SourceGenerator(3, true);
+        for (int i = 0; i < 500; i++) {
+            String source = generator.next(40);
+            TokenBuffer tokens = new Scanner(SourceText.of(source), Diagnostics.collecting()).scanTokens();
+            Scanner scanner = new Scanner(SourceText.of(source), Diagnostics.collecting());
+
+            for (int index = 0; index < tokens.size(); index++) {
+                assertEquals(tokens.type(index), scanner.nextToken(), source);
+                assertEquals(tokens.start(index), scanner.tokenStart(), source);
+                assertEquals(tokens.length(index), scanner.tokenLength(), source);
+                assertEquals(tokens.line(index), scanner.tokenLine(), source);
+                assertEquals(tokens.column(index), scanner.tokenColumn(), source);
+            }
+            assertEquals(TokenType.EOF, scanner.nextToken());
+        }
+    }
+
+    @Test
+    void keywordsNeedTheWholeIdentifier() {
+        String source = "and andy an class classy fo for fore fun funny if iff nil nils or ore print return super "
+                + "this thus true tru var vars while whiles _if If";
+        TokenBuffer tokens = new Scanner(source).scanTokens();
+        StringBuilder types = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) types.append(tokens.type(i)).append(' ');
+
+        assertEquals("AND IDENTIFIER IDENTIFIER CLASS IDENTIFIER IDENTIFIER FOR IDENTIFIER FUN IDENTIFIER IF "
+                + "IDENTIFIER NIL IDENTIFIER OR IDENTIFIER PRINT RETURN SUPER THIS IDENTIFIER TRUE IDENTIFIER VAR "
+                + "IDENTIFIER WHILE IDENTIFIER IDENTIFIER IDENTIFIER EOF ", types.toString());
+    }
+
+    // Everything the parser and the error messages can see of two buffers
+    static void assertSameTokens(String label, TokenBuffer expected, TokenBuffer tokens) {
+        assertEquals(expected.size(), tokens.size(), label);
+        for (int i = 0; i < expected.size(); i++) {
+            String where = label + " @" + i;
+            assertEquals(expected.type(i), tokens.type(i), where);
+            assertEquals(expected.start(i), tokens.start(i), where);
+            assertEquals(expected.length(i), tokens.length(i), where);
+            assertEquals(expected.literal(i), tokens.literal(i), where);
+            assertEquals(expected.line(i), tokens.line(i), where);
+            assertEquals(expected.column(i), tokens.column(i), where);
+        }
+    }
+
+    static void assertSameTokens(String label, TokenBuffer expected, TokenGapBuffer tokens) {
+        assertEquals(expected.size(), tokens.size(), label);
+        for (int i = 0; i < expected.size(); i++) {
+            String where = label + " @" + i;
+            assertEquals(expected.type(i), tokens.type(i), where);
+            assertEquals(expected.start(i), tokens.start(i), where);
+            assertEquals(expected.length(i), tokens.length(i), where);
+            assertEquals(expected.literal(i), tokens.literal(i), where);
+            assertEquals(expected.line(i), tokens.line(i), where);
+            assertEquals(expected.column(i), tokens.column(i), where);
+        }
+    }
+
+    static void assertSameTokens(String source, List<ReferenceScanner.Lexeme> expected, TokenBuffer tokens,
+                                 boolean offsets) {
+        assertEquals(expected.size(), tokens.size(), source);
+        for (int i = 0; i < expected.size(); i++) {
+            ReferenceScanner.Lexeme lexeme = expected.get(i);
+            String where = source + " @" + i;
+            assertEquals(lexeme.type(), tokens.type(i), where);
+            assertEquals(source.substring(lexeme.start(), lexeme.end()), tokens.lexeme(i), where);
+            assertEquals(lexeme.literal(), tokens.literal(i), where);
+            assertEquals(lexeme.line(), tokens.line(i), where);
+            if (offsets) {
+                assertEquals(lexeme.start(), tokens.start(i), where);
+                assertEquals(lexeme.column(), tokens.column(i), where);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.marcusxavier.lox.scanner;
+
+import java.util.Random;
+
+// Random scanner input, the same for the same seed: every kind of token, keywords and near misses, comments and
+// strings over several lines, runs of blanks long enough for the bulk skips, and stray characters. Not meant to
+// parse.
+final class SourceGenerator {
+    private static final String[] FRAGMENTS = {
+            "(", ")", "{", "}", ",", ".", "-", "+", ";", "*", "%", "/", "!", "!=", "=", "==", "<", "<=", ">", ">=",
+            "and", "class", "else", "false", "for", "fun", "if", "nil", "or", "print", "return", "super", "this",
+            "true", "var", "while", "an", "andy", "classy", "fo", "fox", "_for", "th", "thus", "tru", "x", "a1_b2",
+            "Nil", "0", "7", "12", "3.25", "4.", ".5", "1.2.3", "\"\"", "\"text\"", "\"two\nlines\"",
+            "\"a /* b */ c\"", "// line comment\n", "/* block */", "/* two\nlines */", "/* outer /* inner */ */",
+            "/***/", "/*/ still comment */", "\n", "\r\n", "\t", "@", "#", "$", "?",
+    };
+    private static final String[] NON_ASCII = {"\"héllo\"", "// ünïcode\n", "/* ✓ */", "é", "\"日本\""};
+
+    private final Random random;
+    private final boolean ascii;
+
+    SourceGenerator(long seed, boolean ascii) {
+        this.random = new Random(seed);
+        this.ascii = ascii;
+    }
+
+    String next(int fragments) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            int choice = random.nextInt(40);
+            if (choice == 0) {
+                out.append(" ".repeat(1 + random.nextInt(40)));
+            } else if (choice == 1) {
+                out.append("/*").append(filler()).append("*/");
+            } else if (choice == 2) {
+                out.append('"').append(filler().replace('"', '\'')).append('"');
+            } else if (choice == 3 && !ascii) {
+                out.append(NON_ASCII[random.nextInt(NON_ASCII.length)]);
+            } else {
+                out.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            if (random.nextInt(3) > 0) out.append(' ');
+        }
+
+        // Now and then the source ends inside a string or a comment
+        switch (random.nextInt(20)) {
+            case 0 -> out.append("\"unterminated");
+            case 1 -> out.append("/* unterminated");
+            case 2 -> out.append("/* /* */");
+            default -> {
+            }
+        }
+        return out.toString();
+    }
+
+    // Comment or string body crossing a few 8-byte words, with the chars the bulk searches stop at
+    private String filler() {
+        StringBuilder out = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            out.append(switch (random.nextInt(12)) {
+                case 0 -> '\n';
+                case 1 -> ' ';
+                case 2 -> '*';
+                default -> (char) ('a' + random.nextInt(26));
+            });
+        }
+        return out.toString();
+    }
+}
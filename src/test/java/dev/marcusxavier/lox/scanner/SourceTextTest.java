@@ -0,0 +1,134 @@
+package dev.marcusxavier.lox.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The bulk operations against one unit at a time loops, at every offset. Texts run from empty to a few words long
+// so the SWAR loops and their tails both get exercised. 'Ċ' and 'ª' encode to bytes whose low seven bits are '\n'
+// and '*', and '\u000b', '+' and '.' differ from '\n', '*' and '/' in the lowest bit only: a sloppy lane match
+// takes those for matches, or for more matches after a real one.
+class SourceTextTest {
+    private static final String ALPHABET = "ab  \t\r\n\n**//\"\"éĊª\u000b+.";
+
+    @Test
+    void stringSourcesMatchTheSimpleLoops() {
+        Random random = new Random(6);
+        for (int length = 0; length < 70; length++) {
+            for (int round = 0; round < 20; round++) {
+                String text = text(random, length);
+                int[] units = text.chars().toArray();
+                check(SourceText.of(text), units, random);
+            }
+        }
+    }
+
+    @Test
+    void utf8SourcesMatchTheSimpleLoops() {
+        Random random = new Random(7);
+        for (int length = 0; length < 70; length++) {
+            for (int round = 0; round < 20; round++) {
+                byte[] bytes = text(random, length).getBytes(StandardCharsets.UTF_8);
+                int[] units = new int[bytes.length];
+                for (int i = 0; i < bytes.length; i++) units[i] = bytes[i] & 0xff;
+                check(new Utf8SourceText(ByteBuffer.wrap(bytes)), units, random);
+            }
+        }
+    }
+
+    // Edited in place, with the gap wherever the last replace left it
+    @Test
+    void gapSourcesMatchTheSimpleLoops() {
+        Random random = new Random(8);
+        for (int round = 0; round < 300; round++) {
+            String text = text(random, random.nextInt(70));
+            GapSourceText source = new GapSourceText(text);
+            for (int edit = 0; edit < 5; edit++) {
+                int start = random.nextInt(text.length() + 1);
+                int end = start + random.nextInt(text.length() - start + 1);
+                String replacement = text(random, random.nextInt(random.nextBoolean() ? 5 : 100));
+                source.replace(start, end, replacement);
+                text = text.substring(0, start) + replacement + text.substring(end);
+
+                assertEquals(text, source.text(0, source.length()));
+                check(source, text.chars().toArray(), random);
+                LineIndex lines = LineIndex.of(SourceText.of(text));
+                for (int offset = 0; offset <= text.length(); offset++) {
+                    assertEquals(lines.line(offset), source.line(offset), text + " @" + offset);
+                    assertEquals(lines.column(offset), source.column(offset), text + " @" + offset);
+                }
+            }
+        }
+    }
+
+    @Test
+    void longBlankRunsAreSkippedWhole() {
+        String text = " ".repeat(37) + "\t \r" + " ".repeat(16) + "x";
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(text.length() - 1, SourceText.of(text).skipBlanks(0));
+        assertEquals(text.length() - 1, new Utf8SourceText(ByteBuffer.wrap(bytes)).skipBlanks(0));
+        assertEquals(text.length() - 1, new Utf8SourceText(ByteBuffer.wrap(bytes)).skipBlanks(5));
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < length; i++) out.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        return out.toString();
+    }
+
+    private static void check(SourceText source, int[] units, Random random) {
+        assertEquals(units.length, source.length());
+        for (int from = 0; from <= units.length; from++) {
+            String where = "from " + from + " of " + units.length;
+            int to = from + random.nextInt(units.length - from + 1);
+            for (char c : new char[]{'\n', '"', '*'}) {
+                assertEquals(indexOf(units, c, from, units.length), source.indexOf(c, from), where);
+                assertEquals(indexOf(units, c, from, to), source.indexOf(c, from, to), where + " to " + to);
+                assertEquals(lastIndexOf(units, c, from - 1), source.lastIndexOf(c, from - 1), where);
+            }
+            assertEquals(indexOfCommentMark(units, from), source.indexOfCommentMark(from), where);
+            assertEquals(skipBlanks(units, from), source.skipBlanks(from), where);
+            assertEquals(countLines(units, from, to), source.countLines(from, to), where + " to " + to);
+        }
+    }
+
+    private static int indexOf(int[] units, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (units[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfCommentMark(int[] units, int from) {
+        for (int i = from; i < units.length; i++) {
+            if (units[i] == '*' || units[i] == '/') return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(int[] units, char c, int from) {
+        for (int i = Math.min(from, units.length - 1); i >= 0; i--) {
+            if (units[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static int skipBlanks(int[] units, int from) {
+        int i = from;
+        while (i < units.length && (units[i] == ' ' || units[i] == '\t' || units[i] == '\r')) i++;
+        return i;
+    }
+
+    private static int countLines(int[] units, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (units[i] == '\n') lines++;
+        }
+        return lines;
+    }
+}